@@ -0,0 +1,451 @@
+package com.jmariner.vlcremote;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for VLC's web interface and stream output, for load and latency testing without VLC.<br>
+ * Serves <code>custom/status.json</code>, <code>custom/playlist.json</code>, <code>custom/library.json</code>
+ * and <code>requests/browse.json</code> behind Basic auth on the web port, and an endless
+ * 16 bit stereo PCM (WAV) sine wave on the stream port.
+ * Commands sent to status.json change the fake player state the same way VLC would.<br>
+ * Latency, jitter and error injection can be changed while the server is running.
+ */
+public class FakeVLCServer {
+
+	private final int webPort, streamPort;
+	private final String authHeader;
+
+	private HttpServer web, stream;
+	private ExecutorService executor;
+
+	private final JsonObject statusTemplate;
+	private final String libraryJson;
+	private volatile String playlistJson;
+	private volatile int playlistSize;
+	private volatile Map<Integer, JsonObject> items;
+
+	private volatile int latency, jitter, timeout;
+	private volatile double errorRate;
+
+	private final AtomicLong requests, errors;
+
+	// player state
+	private volatile String state;
+	private volatile boolean random, loop, repeat;
+	private volatile int currentID, volume, length;
+	private volatile long startedAt, pausedTime;
+
+	private static final int FIRST_ID = 4;
+	private static final int ALBUM_SIZE = 40;
+	private static final int SAMPLE_RATE = 44100;
+	private static final int STREAM_CHUNK_MS = 50;
+
+	public FakeVLCServer(int webPort, int streamPort, String password) {
+		this.webPort = webPort;
+		this.streamPort = streamPort;
+		this.authHeader = "Basic " + Base64.getEncoder().encodeToString(
+				(":" + password).getBytes(StandardCharsets.UTF_8));
+
+		this.statusTemplate = new JsonParser().parse(Payloads.read(Payloads.STATUS)).getAsJsonObject();
+		this.libraryJson = Payloads.read(Payloads.LIBRARY);
+
+		this.requests = new AtomicLong();
+		this.errors = new AtomicLong();
+		this.timeout = 30000;
+
+		this.state = "playing";
+		this.volume = 256;
+		this.length = 240;
+		this.startedAt = System.currentTimeMillis();
+
+		setPlaylistSize(40);
+	}
+
+	public void start() throws IOException {
+		executor = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "Fake VLC");
+			t.setDaemon(true);
+			return t;
+		});
+
+		web = HttpServer.create(new InetSocketAddress(webPort), 0);
+		web.createContext("/", this::handleWeb);
+		web.setExecutor(executor);
+		web.start();
+
+		stream = HttpServer.create(new InetSocketAddress(streamPort), 0);
+		stream.createContext("/", this::handleStream);
+		stream.setExecutor(executor);
+		stream.start();
+	}
+
+	public void stop() {
+		if (web != null) web.stop(0);
+		if (stream != null) stream.stop(0);
+		if (executor != null) executor.shutdownNow();
+	}
+
+	/**
+	 * Replaces the playlist with <code>size</code> generated songs, up to 100k or more.
+	 */
+	public void setPlaylistSize(int size) {
+		playlistJson = Payloads.playlist(size);
+		playlistSize = size;
+
+		Map<Integer, JsonObject> items = new HashMap<>();
+		for (JsonElement e : new JsonParser().parse(playlistJson).getAsJsonObject().getAsJsonArray("children")) {
+			JsonObject o = e.getAsJsonObject();
+			items.put(o.get("id").getAsInt(), o);
+		}
+		this.items = items;
+
+		currentID = size > 0 ? FIRST_ID : -1;
+	}
+
+	/**
+	 * @param latency fixed delay in ms before every web response
+	 * @param jitter maximum random delay in ms added to <code>latency</code>
+	 */
+	public void setLatency(int latency, int jitter) {
+		this.latency = latency;
+		this.jitter = jitter;
+	}
+
+	/**
+	 * @param errorRate fraction of web requests, from 0 to 1, that fail with a 401, a 404 or a timeout
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * @param timeout how long in ms an injected timeout holds the request before closing it
+	 */
+	public void setTimeout(int timeout) {
+		this.timeout = timeout;
+	}
+
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	public long getErrorCount() {
+		return errors.get();
+	}
+
+	private void handleWeb(HttpExchange ex) throws IOException {
+		try {
+			requests.incrementAndGet();
+			delay();
+
+			if (!authHeader.equals(ex.getRequestHeaders().getFirst("Authorization"))) {
+				respond(ex, 401, "");
+				return;
+			}
+
+			if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+				injectError(ex);
+				return;
+			}
+
+			String path = ex.getRequestURI().getPath();
+			switch (path) {
+				case "/":
+					respond(ex, 200, "<html><body>VLC</body></html>");
+					break;
+				case "/custom/status.json":
+					handleCommand(parseQuery(ex.getRequestURI().getRawQuery()));
+					respond(ex, 200, statusJson());
+					break;
+				case "/custom/playlist.json":
+					respond(ex, 200, playlistJson);
+					break;
+				case "/custom/library.json":
+					respond(ex, 200, libraryJson);
+					break;
+				case "/requests/browse.json":
+					respond(ex, 200, browseJson(parseQuery(ex.getRequestURI().getRawQuery()).getOrDefault("uri", "")));
+					break;
+				default:
+					respond(ex, 404, "");
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			ex.close();
+		}
+	}
+
+	private void delay() throws InterruptedException {
+		int d = latency + (jitter > 0 ? ThreadLocalRandom.current().nextInt(jitter + 1) : 0);
+		if (d > 0)
+			Thread.sleep(d);
+	}
+
+	private void injectError(HttpExchange ex) throws IOException, InterruptedException {
+		errors.incrementAndGet();
+		switch (ThreadLocalRandom.current().nextInt(3)) {
+			case 0:
+				respond(ex, 401, "");
+				break;
+			case 1:
+				respond(ex, 404, "");
+				break;
+			default:
+				// hold the request open past the client's read timeout, then drop it
+				Thread.sleep(timeout);
+		}
+	}
+
+	private void handleCommand(Map<String, String> query) {
+		String cmd = query.get("command");
+		if (cmd == null) return;
+
+		switch (cmd) {
+			case "pl_play":
+				if (query.containsKey("id"))
+					playItem(Integer.parseInt(query.get("id")));
+				else if (state.equals("paused"))
+					togglePause();
+				else if (state.equals("stopped"))
+					playItem(currentID);
+				break;
+			case "pl_pause":
+				togglePause();
+				break;
+			case "pl_stop":
+				state = "stopped";
+				pausedTime = 0;
+				break;
+			case "pl_next":
+				playItem(currentID + 1 < FIRST_ID + playlistSize ? currentID + 1 : FIRST_ID);
+				break;
+			case "pl_previous":
+				playItem(currentID > FIRST_ID ? currentID - 1 : currentID);
+				break;
+			case "pl_random":
+				random = !random;
+				break;
+			case "pl_loop":
+				loop = !loop;
+				break;
+			case "pl_repeat":
+				repeat = !repeat;
+				break;
+			case "volume":
+				volume = (int) Double.parseDouble(query.getOrDefault("val", "" + volume));
+				break;
+			case "seek":
+				seek(query.getOrDefault("val", "0"));
+				break;
+			case "pl_empty":
+				setPlaylistSize(0);
+				state = "stopped";
+				break;
+			case "in_play":
+				setPlaylistSize(40);
+				playItem(FIRST_ID);
+				break;
+			default:
+		}
+	}
+
+	private void playItem(int id) {
+		currentID = id;
+		JsonObject item = items.get(id);
+		length = item != null ? item.get("duration").getAsInt() : 150 + (id * 37) % 270;
+		state = "playing";
+		startedAt = System.currentTimeMillis();
+	}
+
+	private void togglePause() {
+		if (state.equals("playing")) {
+			pausedTime = time();
+			state = "paused";
+		}
+		else {
+			startedAt = System.currentTimeMillis() - pausedTime * 1000;
+			state = "playing";
+		}
+	}
+
+	private void seek(String val) {
+		int seconds = val.endsWith("%") ?
+				(int) (Double.parseDouble(val.substring(0, val.length() - 1)) / 100 * length) :
+				Integer.parseInt(val);
+		startedAt = System.currentTimeMillis() - seconds * 1000L;
+		pausedTime = seconds;
+	}
+
+	private long time() {
+		if (!state.equals("playing"))
+			return pausedTime;
+		return Math.min(length, (System.currentTimeMillis() - startedAt) / 1000);
+	}
+
+	private synchronized String statusJson() {
+		long time = time();
+		JsonObject o = statusTemplate;
+		o.addProperty("state", state);
+		o.addProperty("time", time);
+		o.addProperty("length", length);
+		o.addProperty("position", length == 0 ? 0 : time / (double) length);
+		o.addProperty("volume", volume);
+		o.addProperty("random", random);
+		o.addProperty("loop", loop);
+		o.addProperty("repeat", repeat);
+		o.addProperty("currentplid", currentID);
+
+		// like VLC, the meta of the current item matches its playlist entry
+		JsonObject item = items.get(currentID);
+		if (item != null) {
+			JsonObject meta = o.getAsJsonObject("information").getAsJsonObject("category").getAsJsonObject("meta");
+			meta.add("title", item.get("title"));
+			meta.add("artist", item.get("artist"));
+			meta.add("album", item.get("album"));
+		}
+		return o.toString();
+	}
+
+	/**
+	 * Lists a folder of the fake library: a parent entry, a cover image and {@link #ALBUM_SIZE} songs.
+	 */
+	private static String browseJson(String uri) {
+		String folder = uri.endsWith("/") ? uri : uri + "/";
+		JsonArray elements = new JsonArray();
+		elements.add(browseElement("dir", "..", folder + ".."));
+		elements.add(browseElement("file", "cover.jpg", folder + "cover.jpg"));
+		for (int i = 1; i <= ALBUM_SIZE; i++) {
+			String name = String.format("%02d - Track %d.mp3", i, i);
+			elements.add(browseElement("file", name, folder + name.replace(" ", "%20")));
+		}
+
+		JsonObject o = new JsonObject();
+		o.add("element", elements);
+		return o.toString();
+	}
+
+	private static JsonObject browseElement(String type, String name, String uri) {
+		JsonObject o = new JsonObject();
+		o.addProperty("type", type);
+		o.addProperty("name", name);
+		o.addProperty("uri", uri);
+		return o;
+	}
+
+	private static void respond(HttpExchange ex, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		if (status == 401)
+			ex.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"VLC stream\"");
+		ex.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		if (bytes.length > 0) {
+			try (OutputStream out = ex.getResponseBody()) {
+				out.write(bytes);
+			}
+		}
+	}
+
+	private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+		Map<String, String> out = new HashMap<>();
+		if (query == null) return out;
+
+		for (String pair : query.split("&")) {
+			int i = pair.indexOf('=');
+			if (i > 0)
+				out.put(URLDecoder.decode(pair.substring(0, i), "UTF-8"), URLDecoder.decode(pair.substring(i + 1), "UTF-8"));
+		}
+		return out;
+	}
+
+	/**
+	 * Streams a 440 Hz tone in real time until the client disconnects.
+	 */
+	private void handleStream(HttpExchange ex) throws IOException {
+		ex.getResponseHeaders().set("Content-Type", "audio/wav");
+		ex.sendResponseHeaders(200, 0);
+
+		int channels = 2, bytesPerFrame = 2 * channels;
+		int framesPerChunk = SAMPLE_RATE * STREAM_CHUNK_MS / 1000;
+		ByteBuffer chunk = ByteBuffer.allocate(framesPerChunk * bytesPerFrame).order(ByteOrder.LITTLE_ENDIAN);
+
+		try (OutputStream out = ex.getResponseBody()) {
+			out.write(wavHeader(channels));
+
+			long frame = 0;
+			long next = System.nanoTime();
+			while (!Thread.currentThread().isInterrupted()) {
+				chunk.clear();
+				for (int i = 0; i < framesPerChunk; i++, frame++) {
+					short sample = (short) (Math.sin(2 * Math.PI * 440 * frame / SAMPLE_RATE) * 8000);
+					for (int c = 0; c < channels; c++)
+						chunk.putShort(sample);
+				}
+				out.write(chunk.array(), 0, chunk.position());
+				out.flush();
+
+				next += STREAM_CHUNK_MS * 1000000L;
+				long wait = next - System.nanoTime();
+				if (wait > 0)
+					Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+			}
+		}
+		catch (IOException | InterruptedException e) {
+			// client disconnected or server stopped
+		}
+		finally {
+			ex.close();
+		}
+	}
+
+	private static byte[] wavHeader(int channels) {
+		int byteRate = SAMPLE_RATE * channels * 2;
+		ByteBuffer b = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+		b.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(Integer.MAX_VALUE);
+		b.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+		b.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+				.putShort((short) 1).putShort((short) channels)
+				.putInt(SAMPLE_RATE).putInt(byteRate)
+				.putShort((short) (channels * 2)).putShort((short) 16);
+		// unknown length, so claim the largest possible data chunk
+		b.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(Integer.MAX_VALUE - 36);
+		return b.array();
+	}
+
+	public static void main(String[] args) throws IOException {
+		int webPort = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		int streamPort = args.length > 1 ? Integer.parseInt(args[1]) : 8081;
+		String password = args.length > 2 ? args[2] : "vlc";
+
+		FakeVLCServer server = new FakeVLCServer(webPort, streamPort, password);
+		server.setPlaylistSize(Integer.getInteger("playlistSize", 40));
+		server.setLatency(Integer.getInteger("latency", 0), Integer.getInteger("jitter", 0));
+		server.setErrorRate(Double.parseDouble(System.getProperty("errorRate", "0")));
+		server.start();
+
+		System.out.printf("Fake VLC on web port %d, stream port %d%n", webPort, streamPort);
+	}
+}
@@ -0,0 +1,57 @@
+package com.jmariner.vlcremote;
+
+import com.jmariner.vlcremote.MyVLCRemote.Command;
+import com.jmariner.vlcremote.util.VLCStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full request round trips through {@link MyVLCRemote} against a local {@link FakeVLCServer}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class MyVLCRemoteBenchmark {
+
+	@Param({"0", "5"})
+	public int latency;
+
+	private FakeVLCServer server;
+	private MyVLCRemote remote;
+
+	private static final int WEB_PORT = 18090;
+	private static final int STREAM_PORT = 18091;
+	private static final String PASSWORD = "bench";
+
+	@Setup
+	public void setup() throws IOException {
+		server = new FakeVLCServer(WEB_PORT, STREAM_PORT, PASSWORD);
+		server.setLatency(latency, 0);
+		server.start();
+
+		remote = new MyVLCRemote("localhost", WEB_PORT, PASSWORD, STREAM_PORT, Throwable::printStackTrace);
+		if (!remote.isConnected())
+			throw new IllegalStateException("Could not connect to the fake server");
+	}
+
+	@TearDown
+	public void tearDown() {
+		remote.close();
+		server.stop();
+	}
+
+	@Benchmark
+	public VLCStatus getNewStatus() {
+		return remote.getNewStatus();
+	}
+
+	@Benchmark
+	public VLCStatus sendCommand() {
+		return remote.sendCommand(Command.TOGGLE_LOOP);
+	}
+}
@@ -0,0 +1,101 @@
+package com.jmariner.vlcremote;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Recorded VLC responses used as benchmark input.<br>
+ * Larger playlists are built by repeating the recorded entries with new IDs and titles,
+ * so they keep the same shape and string lengths as a real response.
+ */
+public class Payloads {
+
+	public static final String STATUS = "status.json";
+	public static final String PLAYLIST = "playlist.json";
+	public static final String LIBRARY = "library.json";
+
+	private static final long SEED = 42;
+
+	public static String read(String name) {
+		try (InputStream in = Payloads.class.getResourceAsStream("payloads/" + name)) {
+			if (in == null)
+				throw new IllegalArgumentException("No payload named " + name);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int n; (n = in.read(buffer)) > -1; )
+				out.write(buffer, 0, n);
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return playlist json in the format of custom/playlist.json with <code>size</code> entries
+	 */
+	public static String playlist(int size) {
+		JsonObject root = new JsonParser().parse(read(PLAYLIST)).getAsJsonObject();
+		JsonArray recorded = root.getAsJsonArray("children");
+		JsonArray children = new JsonArray();
+
+		for (int i = 0; i < size; i++) {
+			JsonObject o = copy(recorded.get(i % recorded.size()).getAsJsonObject());
+			int round = i / recorded.size();
+			o.addProperty("id", String.valueOf(i + 4));
+			o.addProperty("title", o.get("title").getAsString() + suffix(round));
+			o.addProperty("name", o.get("name").getAsString() + suffix(round));
+			o.remove("current");
+			children.add(o);
+		}
+
+		root.add("children", children);
+		return root.toString();
+	}
+
+	/**
+	 * @return <code>size</code> songs based on the recorded playlist, in shuffled order
+	 */
+	public static List<SongItem> songs(int size) {
+		JsonArray recorded = new JsonParser().parse(read(PLAYLIST)).getAsJsonObject().getAsJsonArray("children");
+		List<SongItem> out = new ArrayList<>(size);
+
+		for (int i = 0; i < size; i++) {
+			JsonObject o = recorded.get(i % recorded.size()).getAsJsonObject();
+			out.add(new SongItem(
+					i + 4,
+					o.get("title").getAsString() + suffix(i / recorded.size()),
+					o.get("artist").getAsString(),
+					o.get("album").getAsString(),
+					o.get("duration").getAsInt()));
+		}
+
+		Collections.shuffle(out, new Random(SEED));
+		return out;
+	}
+
+	private static String suffix(int round) {
+		return round == 0 ? "" : " (" + round + ")";
+	}
+
+	private static JsonObject copy(JsonObject o) {
+		JsonObject out = new JsonObject();
+		for (Map.Entry<String, JsonElement> e : o.entrySet())
+			out.add(e.getKey(), e.getValue());
+		return out;
+	}
+}
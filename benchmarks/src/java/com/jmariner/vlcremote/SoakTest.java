@@ -0,0 +1,87 @@
+package com.jmariner.vlcremote;
+
+import com.jmariner.vlcremote.util.VLCStatus;
+import com.jmariner.vlcremote.util.VLCTransport;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the remote's status polling against a {@link FakeVLCServer} for a while and prints
+ * request latency and failure counts. Everything is configured with system properties:
+ * <ul>
+ *     <li><code>duration</code> seconds to run, default 60</li>
+ *     <li><code>updateDelay</code> ms between status polls, default 250</li>
+ *     <li><code>latency</code>, <code>jitter</code> server delay in ms, default 0</li>
+ *     <li><code>errorRate</code> fraction of failing requests, default 0</li>
+ *     <li><code>playlistSize</code> songs in the playlist, default 40</li>
+ *     <li><code>stream</code> whether to also play the audio stream, default false</li>
+ * </ul>
+ * Example: <code>java -Dlatency=20 -Djitter=30 -DerrorRate=0.01 -cp benchmarks.jar com.jmariner.vlcremote.SoakTest</code>
+ */
+public class SoakTest {
+
+	private static final int WEB_PORT = 18080;
+	private static final int STREAM_PORT = 18081;
+	private static final String PASSWORD = "soak";
+
+	public static void main(String[] args) throws Exception {
+		int duration = Integer.getInteger("duration", 60);
+		int updateDelay = Integer.getInteger("updateDelay", 250);
+
+		FakeVLCServer server = new FakeVLCServer(WEB_PORT, STREAM_PORT, PASSWORD);
+		server.setPlaylistSize(Integer.getInteger("playlistSize", 40));
+		server.setLatency(Integer.getInteger("latency", 0), Integer.getInteger("jitter", 0));
+		server.setTimeout(10000);
+		server.start();
+
+		AtomicLong failures = new AtomicLong();
+		AtomicLong ticks = new AtomicLong();
+
+		MyVLCRemote remote = new MyVLCRemote("localhost", WEB_PORT, PASSWORD, STREAM_PORT, e -> failures.incrementAndGet());
+		if (!remote.isConnected()) {
+			System.err.println("Could not connect to the fake server");
+			server.stop();
+			System.exit(1);
+		}
+
+		// only start failing once connected, like a VLC that goes bad mid session
+		server.setErrorRate(Double.parseDouble(System.getProperty("errorRate", "0")));
+
+		if (Boolean.getBoolean("stream"))
+			remote.getPlayer().start();
+
+		ScheduledExecutorService loop = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "Update Loop"));
+		loop.scheduleAtFixedRate(() -> {
+			try {
+				VLCStatus status = remote.getNewStatus();
+				status.getCurrentSong();
+				ticks.incrementAndGet();
+			}
+			catch (RuntimeException e) {
+				failures.incrementAndGet();
+			}
+		}, 0, updateDelay, TimeUnit.MILLISECONDS);
+
+		for (int s = 1; s <= duration; s++) {
+			Thread.sleep(1000);
+			if (s % 10 == 0 || s == duration)
+				report(s, remote.getTransport(), ticks.get(), failures.get(), server);
+		}
+
+		loop.shutdownNow();
+		if (remote.getPlayer().isPlaying())
+			remote.getPlayer().stop();
+		remote.close();
+		server.stop();
+		System.exit(0);
+	}
+
+	private static void report(int seconds, VLCTransport transport, long ticks, long failures, FakeVLCServer server) {
+		System.out.printf("%4ds  ticks=%d failures=%d requests=%d injectedErrors=%d lastLatency=%dms avgLatency=%.2fms%n",
+				seconds, ticks, failures, server.getRequestCount(), server.getErrorCount(),
+				transport.getLastLatency(), transport.getAverageLatency());
+	}
+}
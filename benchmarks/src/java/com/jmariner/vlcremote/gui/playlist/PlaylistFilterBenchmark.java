@@ -0,0 +1,56 @@
+package com.jmariner.vlcremote.gui.playlist;
+
+import com.jmariner.vlcremote.Payloads;
+import com.jmariner.vlcremote.SongItem;
+import com.jmariner.vlcremote.util.SearchIndex;
+import com.jmariner.vlcremote.util.SongStore;
+import com.jmariner.vlcremote.util.UserSettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the songs that pass the playlist filters, as done on every search keystroke,
+ * and building the search index, as done once per playlist load.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class PlaylistFilterBenchmark {
+
+	@Param({"10000", "100000"})
+	public int size;
+
+	@Param({"", "mid", "zzz"})
+	public String filterText;
+
+	@Param({"false", "true"})
+	public boolean favoritesOnly;
+
+	private SongStore songs;
+	private SearchIndex index;
+
+	@Setup
+	public void setup() {
+		List<SongItem> list = Payloads.songs(size);
+		songs = new SongStore(list.size());
+		list.forEach(songs::add);
+		index = new SearchIndex(songs.values());
+		if (favoritesOnly)
+			list.stream().limit(50).forEach(s -> UserSettings.addFavorite(s.toString()));
+	}
+
+	@Benchmark
+	public int filter() {
+		return PlaylistUtil.filterMatches(index, songs, filterText, favoritesOnly).cardinality();
+	}
+
+	@Benchmark
+	public SearchIndex buildIndex() {
+		return new SearchIndex(songs.values());
+	}
+}
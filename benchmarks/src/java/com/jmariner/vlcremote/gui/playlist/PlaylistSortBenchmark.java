@@ -0,0 +1,44 @@
+package com.jmariner.vlcremote.gui.playlist;
+
+import com.jmariner.vlcremote.Payloads;
+import com.jmariner.vlcremote.SongItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting a shuffled playlist with each of the playlist table comparators.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class PlaylistSortBenchmark {
+
+	@Param({"10000", "100000"})
+	public int size;
+
+	@Param({"name", "title", "duration"})
+	public String order;
+
+	private List<SongItem> songs;
+	private Comparator<SongItem> comparator;
+
+	@Setup
+	public void setup() {
+		songs = Payloads.songs(size);
+		comparator = PlaylistTable.COMPARATORS.get(order);
+	}
+
+	@Benchmark
+	public List<SongItem> sort() {
+		List<SongItem> sorted = new ArrayList<>(songs);
+		sorted.sort(comparator);
+		return sorted;
+	}
+}
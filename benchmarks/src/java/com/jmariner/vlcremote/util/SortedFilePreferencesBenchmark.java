@@ -0,0 +1,52 @@
+package com.jmariner.vlcremote.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * A single preference write, which only queues the node for the background flush,
+ * and a write followed by an immediate flush to the backing file.
+ * <code>existingKeys</code> is the number of entries already in the file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SortedFilePreferencesBenchmark {
+
+	@Param({"10", "1000"})
+	public int existingKeys;
+
+	private File file;
+	private Preferences node;
+	private int counter;
+
+	@Setup
+	public void setup() throws IOException {
+		file = File.createTempFile("vlcremote-bench", ".prefs");
+		file.deleteOnExit();
+		System.setProperty(SortedFilePreferencesFactory.SYSTEM_PROPERTY_FILE, file.getPath());
+
+		node = new SortedFilePreferences(null, "").node("favorites");
+		for (int i = 0; i < existingKeys; i++)
+			node.putBoolean("existing" + i, true);
+	}
+
+	@Benchmark
+	public void put() {
+		node.putInt("benchmark", counter++);
+	}
+
+	@Benchmark
+	public void putAndFlush() throws BackingStoreException {
+		node.putInt("benchmark", counter++);
+		node.flush();
+	}
+}
@@ -0,0 +1,60 @@
+package com.jmariner.vlcremote.util;
+
+import com.jmariner.vlcremote.Payloads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the three json responses polled from VLC.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VLCStatusBenchmark {
+
+	private VLCStatus status;
+	private String statusJson, libraryJson;
+
+	@State(Scope.Thread)
+	public static class Playlist {
+		@Param({"1000", "10000", "100000"})
+		public int size;
+
+		public String json;
+
+		@Setup
+		public void setup() {
+			json = Payloads.playlist(size);
+		}
+	}
+
+	@Setup
+	public void setup() {
+		status = new VLCStatus();
+		statusJson = Payloads.read(Payloads.STATUS);
+		libraryJson = Payloads.read(Payloads.LIBRARY);
+	}
+
+	@Benchmark
+	public VLCStatus loadStatus() {
+		status.loadStatus(statusJson);
+		return status;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public VLCStatus loadPlaylist(Playlist playlist) {
+		status.loadPlaylist(playlist.json);
+		return status;
+	}
+
+	@Benchmark
+	public VLCStatus loadMediaLibrary() {
+		status.loadMediaLibrary(libraryJson);
+		return status;
+	}
+}
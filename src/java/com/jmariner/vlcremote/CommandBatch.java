@@ -0,0 +1,73 @@
+package com.jmariner.vlcremote;
+
+import com.jmariner.vlcremote.MyVLCRemote.Command;
+import com.jmariner.vlcremote.util.VLCStatus;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Queues several commands so they can be sent back to back, loading the status only once
+ * at the end instead of after every command.<br>
+ * Create one with {@link MyVLCRemote#batch()}.
+ */
+public class CommandBatch {
+
+	private MyVLCRemote remote;
+	private List<Pair<Command, String>> commands;
+
+	protected CommandBatch(MyVLCRemote remote) {
+		this.remote = remote;
+		this.commands = new ArrayList<>();
+	}
+
+	public CommandBatch add(Command cmd) {
+		return add(cmd, null);
+	}
+
+	public CommandBatch add(Command cmd, String val) {
+		commands.add(Pair.of(cmd, val));
+		return this;
+	}
+
+	public CommandBatch setSourceVolume(double percentVolume) {
+		return add(Command.SET_VOLUME, MyVLCRemote.toSourceVolume(percentVolume));
+	}
+
+	public boolean isEmpty() {
+		return commands.isEmpty();
+	}
+
+	/**
+	 * Blocking call that sends every queued command in order, then loads the status once
+	 * from the last response.
+	 * @return the status after all commands were sent
+	 * @see MyVLCRemote#applyCommandResponse(String)
+	 */
+	public VLCStatus send() {
+		return remote.applyCommandResponse(sendCommands());
+	}
+
+	/**
+	 * Non-blocking version of {@link #send()}.
+	 * The requests run on the I/O thread and the returned future completes on the EDT.
+	 */
+	public CompletableFuture<VLCStatus> sendAsync() {
+		return remote.runAsync(this::send);
+	}
+
+	/**
+	 * Sends every queued command in order without loading the status afterwards.
+	 * @return the response body of the last command, or <code>null</code> if any request failed
+	 */
+	protected String sendCommands() {
+		String body = null;
+		for (Pair<Command, String> c : commands) {
+			body = remote.sendCommandOnly(c.getLeft(), c.getRight());
+			if (body == null) return null;
+		}
+		return body;
+	}
+}
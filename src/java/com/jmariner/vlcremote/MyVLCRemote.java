@@ -1,22 +1,47 @@
 package com.jmariner.vlcremote;
 
+import com.jmariner.vlcremote.util.AdaptivePollScheduler;
+import com.jmariner.vlcremote.util.LibraryCache;
+import com.jmariner.vlcremote.util.LibraryIndexer;
 import com.jmariner.vlcremote.util.MediaStreamPlayer;
+import com.jmariner.vlcremote.util.SongIndex;
+import com.jmariner.vlcremote.util.SongStore;
+import com.jmariner.vlcremote.util.UserSettings;
 import com.jmariner.vlcremote.util.VLCStatus;
-import com.mashape.unirest.http.HttpResponse;
-import com.mashape.unirest.http.Unirest;
-import com.mashape.unirest.http.exceptions.UnirestException;
+import com.jmariner.vlcremote.util.VLCStatus.State;
+import com.jmariner.vlcremote.util.VLCTransport;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 
+import javax.swing.SwingUtilities;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.ConnectException;
 import java.net.URLEncoder;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class MyVLCRemote {
@@ -26,100 +51,318 @@ public class MyVLCRemote {
 
 	private String baseURL;
 	private String streamURL;
-	private String httpPassword;
-	
+
+	@Getter
+	private VLCTransport transport;
+
+	private LibraryCache libraryCache;
+
+	/** songs of every album in the library, filled in the background by {@link #indexLibraryAsync()} */
+	@Getter
+	private SongIndex songIndex;
+	private LibraryIndexer libraryIndexer;
+	private SongStore indexedPlaylist;
+
+	/** true if the library and playlist were loaded from the last session instead of downloaded */
+	@Getter
+	private boolean restoredFromCache;
+
+	private ExecutorService ioExecutor;
+	private ScheduledExecutorService scheduler;
+
 	@Getter
-	private boolean connected;
+	private volatile ConnectionState connectionState;
+	private Session lostSession;
+	private int reconnectAttempts;
+
+	@Getter
+	private volatile long lastCommandTime;
 	
 	@Getter
 	private MediaStreamPlayer player;
 
 	@Setter
 	private Consumer<Throwable> exceptionHandler;
+	/** called on the EDT whenever the connection state changes after the initial connection */
+	@Setter
+	private Consumer<ConnectionState> connectionListener;
 
 	private static final String STATUS_REQUEST = 	"custom/status.json";
 	private static final String PLAYLIST_REQUEST = 	"custom/playlist.json";
 	private static final String LIBRARY_REQUEST = 	"custom/library.json";
+
+	private static final int MAX_QUEUED_REQUESTS = 32;
+
+	/** first and longest delay between playlist checks while VLC loads an album, in ms */
+	private static final long ALBUM_POLL_MIN = 100, ALBUM_POLL_MAX = 1000;
 	
 	public MyVLCRemote(String host, int webPort, String password, int streamPort, Consumer<Throwable> handler) {
 		baseURL = String.format("http://%s:%s/", host, webPort);
 		streamURL = String.format("http://%s:%s/", host, streamPort);
-		httpPassword = password;
+		transport = new VLCTransport(baseURL, password);
+
+		// a single thread keeps commands in the order they were sent
+		ioExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(MAX_QUEUED_REQUESTS),
+				r -> new Thread(r, "VLC I/O"));
+		// reconnect attempts and album switch polling
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "VLC Scheduler"));
 		exceptionHandler = handler;
 		
-		connected = false;
+		connectionState = ConnectionState.DISCONNECTED;
 		
 		player = new MediaStreamPlayer(streamURL);
 
 		status = new VLCStatus();
+		libraryCache = new LibraryCache(host, webPort);
+		songIndex = new SongIndex();
+		libraryIndexer = new LibraryIndexer(songIndex, this::fetchQuietly);
 
 		if (testConnection()) {
 			getNewStatus();
-			updatePlaylist();
-			updateLibrary();
-			if (status.libraryExists() && !status.playlistExists()) {
-				String first = status.getLibraryFolders().keySet().iterator().next();
-				switchAlbum(first);
+
+			// the cached library and playlist are checked afterwards with refreshLibraryAsync
+			restoredFromCache = libraryCache.load(status);
+			if (restoredFromCache)
+				status.getSongMap().getSearchIndex();
+			else {
+				updatePlaylist();
+				updateLibrary();
+				if (status.libraryExists() && !status.playlistExists()) {
+					String first = status.getLibraryFolders().keySet().iterator().next();
+					switchAlbum(first);
+				}
+				saveCacheLater();
 			}
 			
-			connected = true;
+			connectionState = ConnectionState.CONNECTED;
 		}
 	}
 
 	public boolean testConnection() {
-		connected = connect("") != null;
-		return connected;
-		
+		return connect("") != null;
+	}
+
+	public boolean isConnected() {
+		return connectionState == ConnectionState.CONNECTED;
 	}
 
 	private String connect(String location) {
+		VLCTransport.Response response = connect(location, null);
+		return response == null ? null : response.getBody();
+	}
+
+	/**
+	 * @param reader reads the body as it is received, or null to keep it in the response
+	 * @return the response, or null if the request failed
+	 */
+	private VLCTransport.Response connect(String location, VLCTransport.BodyReader reader) {
 		try {
 
-			HttpResponse<String> response =
-					Unirest.get(baseURL + location)
-					.basicAuth("", httpPassword)
-					.asString();
+			VLCTransport.Response response = transport.get(location, reader);
 
+			// VLC answered, so these are reported without starting to reconnect
 			int status = response.getStatus();
 			if (status == 401)
-				throw new ConnectException("HTTP 401 Exception: Invalid credentials.");
-			if (status == 404)
-				throw new ConnectException("HTTP 404 Not Found: " + baseURL + location);
-
-			return response.getBody();
+				report(new ConnectException("HTTP 401 Exception: Invalid credentials."));
+			else if (status == 404)
+				report(new ConnectException("HTTP 404 Not Found: " + baseURL + location));
+			else
+				return response;
 		}
-		catch (UnirestException | ConnectException e) {
+		catch (IOException e) {
 			ConnectException conEx;
-			if (e instanceof UnirestException) {
+			if (!(e instanceof ConnectException)) {
 	
-				Throwable cause = e.getCause();
-				String msg = (cause instanceof UnknownHostException) ? 
+				String msg = (e instanceof UnknownHostException) ? 
 							"Unknown host: " + baseURL :
-							cause.getMessage();
+							e.getMessage();
 	
 				conEx = new ConnectException(msg);
-				conEx.initCause(e.getCause());
+				conEx.initCause(e);
 			}
 			else
 				conEx = (ConnectException) e;
 			
-			conEx.printStackTrace();
-			if (exceptionHandler != null)
-				exceptionHandler.accept(conEx);
+			connectionLost(conEx);
 		}
 		return null;
 	}
+
+	private void report(Throwable e) {
+		e.printStackTrace();
+		if (exceptionHandler != null)
+			exceptionHandler.accept(e);
+	}
+
+	/**
+	 * Reports the first failure after being connected and starts reconnecting in the background.
+	 * Further failures while reconnecting aren't reported, so the user only sees one error.
+	 */
+	private synchronized void connectionLost(ConnectException e) {
+		switch (connectionState) {
+			case CONNECTED:
+				lostSession = new Session(status, player);
+				setConnectionState(ConnectionState.RECONNECTING);
+				report(e);
+				reconnectAttempts = 0;
+				scheduleReconnect();
+				break;
+			case RECONNECTING:
+				break;
+			case DISCONNECTED:
+				report(e);
+		}
+	}
+
+	private void setConnectionState(ConnectionState state) {
+		connectionState = state;
+		if (connectionListener != null)
+			SwingUtilities.invokeLater(() -> connectionListener.accept(state));
+	}
+
+	/**
+	 * Waits a random time between half and all of the backoff delay before the next try,
+	 * so several remotes don't all retry at the same moment.
+	 */
+	private void scheduleReconnect() {
+		long backoff = AdaptivePollScheduler.backoff(++reconnectAttempts);
+		long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+		try {
+			scheduler.schedule(this::tryReconnect, delay, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException ignored) {} // closed while reconnecting
+	}
+
+	private void tryReconnect() {
+		if (connectionState != ConnectionState.RECONNECTING) return;
+		try {
+			if (transport.get("").getStatus() == 200) {
+				restoreSession(lostSession);
+				setConnectionState(ConnectionState.CONNECTED);
+				return;
+			}
+		}
+		catch (IOException ignored) {} // still unreachable
+		catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+		scheduleReconnect();
+	}
+
+	/**
+	 * Puts VLC back the way it was before the connection was lost.
+	 * If VLC was restarted, the album is loaded again and the song resumed where it was;
+	 * after a short network problem, usually only the playlist and stream need to be reloaded.
+	 */
+	private void restoreSession(Session session) {
+		updateLibrary();
+		updatePlaylist();
+		updateStatus();
+
+		if (!status.playlistExists() && status.getLibraryFolders().containsKey(session.album))
+			switchAlbum(session.album);
+
+		CommandBatch restore = batch().add(Command.SET_VOLUME, ""+session.volume);
+		if (session.playing && status.getState() != State.PLAYING) {
+			SongItem song = findSong(session.song);
+			if (song != null)
+				restore.add(Command.PLAY_ITEM, ""+song.getId())
+					.add(Command.SEEK_TO, ""+session.time);
+		}
+		restore.send();
+
+		if (session.streaming)
+			player.restart(1000);
+	}
+
+	/**
+	 * @return the song in the current playlist with the same details as <code>song</code>,
+	 * since playlist IDs change when VLC is restarted
+	 */
+	private SongItem findSong(SongItem song) {
+		if (song == null) return null;
+		SongItem same = status.getSongMap().get(song.getId());
+		if (same != null && same.toString().equals(song.toString()))
+			return same;
+		return status.getSongMap().values().stream()
+				.filter(s -> s.toString().equals(song.toString()) && Objects.equals(s.getAlbum(), song.getAlbum()))
+				.findFirst().orElse(null);
+	}
+	
+	/**
+	 * Releases the pooled connections to VLC. The remote can't be used after this.
+	 */
+	public void close() {
+		connectionState = ConnectionState.DISCONNECTED;
+		ioExecutor.shutdownNow();
+		scheduler.shutdownNow();
+		libraryIndexer.close();
+		transport.close();
+	}
 	
 	private void updateLibrary() {
-		status.loadMediaLibrary(connect(LIBRARY_REQUEST));
+		status.loadMediaLibrary(fetch(LIBRARY_REQUEST));
 	}
 
 	private void updatePlaylist() {
-		status.loadPlaylist(connect(PLAYLIST_REQUEST));
+		// the playlist can be very large, so it is parsed as it arrives
+		fetch(PLAYLIST_REQUEST, status::loadPlaylist);
+		// built here on the I/O thread, so the playlist panel doesn't build it on the EDT
+		status.getSongMap().getSearchIndex();
+		indexPlaylist();
+	}
+
+	/**
+	 * Adds the loaded playlist to the song index, if it changed since it was last added.
+	 */
+	private synchronized void indexPlaylist() {
+		SongStore songs = status.getSongMap();
+		if (songs != indexedPlaylist && status.playlistExists()) {
+			songIndex.put(status.getCurrentAlbum(), songs.values(), true);
+			indexedPlaylist = songs;
+		}
 	}
 
 	private void updateStatus() {
-		status.loadStatus(connect(STATUS_REQUEST));
+		status.loadStatus(fetch(STATUS_REQUEST));
+	}
+
+	/**
+	 * Like {@link #connect(String)}, but fails instead of returning null.
+	 */
+	private String fetch(String location) {
+		String body = connect(location);
+		if (body == null)
+			throw new IllegalStateException("No response received from " + baseURL + location);
+		return body;
+	}
+
+	/**
+	 * Like {@link #fetch(String)}, for best effort requests made in the background.
+	 * A failure is only thrown, it isn't reported and doesn't change the connection state.
+	 */
+	private String fetchQuietly(String location) {
+		try {
+			VLCTransport.Response response = transport.get(location);
+			if (response.getStatus() / 100 != 2)
+				throw new IllegalStateException("HTTP " + response.getStatus() + " received from " + baseURL + location);
+			return response.getBody();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Like {@link #fetch(String)}, but passes the body to <code>reader</code> as it is received.
+	 */
+	private void fetch(String location, VLCTransport.BodyReader reader) {
+		VLCTransport.Response response = connect(location, reader);
+		if (response == null)
+			throw new IllegalStateException("No response received from " + baseURL + location);
+		if (response.getStatus() / 100 != 2)
+			throw new IllegalStateException("HTTP " + response.getStatus() + " received from " + baseURL + location);
 	}
 
 	public VLCStatus getNewStatus() {
@@ -127,17 +370,21 @@ public class MyVLCRemote {
 		return status;
 	}
 
+	/**
+	 * Blocking call that replaces the playlist with an album from the library,
+	 * and waits for VLC to load it.
+	 * @throws IllegalStateException if VLC doesn't load the album within the <code>albumTimeout</code> setting
+	 */
 	public VLCStatus switchAlbum(String newAlbum) {
-		String album = status.getLibraryFolders().get(newAlbum);
-
-		connect(STATUS_REQUEST + "?command=pl_empty");
-		connect(STATUS_REQUEST + "?command=in_play&input=" + album);
+		sendAlbumSwitch(newAlbum);
+		long deadline = System.currentTimeMillis() + UserSettings.getInt("albumTimeout", 10000);
 
 		try {
-			do {
-				Thread.sleep(500);
-				updatePlaylist();
-			} while (!status.playlistExists());
+			for (long delay = ALBUM_POLL_MIN; !playlistLoaded(); delay = Math.min(delay * 2, ALBUM_POLL_MAX)) {
+				if (System.currentTimeMillis() + delay > deadline)
+					throw new IllegalStateException(albumTimeoutMessage(newAlbum));
+				Thread.sleep(delay);
+			}
 		}
 		catch (InterruptedException e) {
 			throw new RuntimeException(e);
@@ -146,22 +393,192 @@ public class MyVLCRemote {
 		return getNewStatus();
 	}
 
+	/**
+	 * Non-blocking version of {@link #switchAlbum(String)}.<br>
+	 * If the album was loaded before, its cached songs are shown by the status right away.
+	 * The commands are sent on the I/O thread, then the playlist is checked in the background
+	 * with a growing delay until VLC has loaded it.
+	 * The returned future completes on the EDT, or fails with a {@link TimeoutException}.
+	 */
+	public CompletableFuture<VLCStatus> switchAlbumAsync(String newAlbum) {
+		status.loadAlbumFromCache(newAlbum);
+
+		CompletableFuture<VLCStatus> loaded = new CompletableFuture<>();
+		long deadline = System.currentTimeMillis() + UserSettings.getInt("albumTimeout", 10000);
+		try {
+			CompletableFuture.runAsync(() -> sendAlbumSwitch(newAlbum), ioExecutor).whenComplete((v, e) -> {
+				if (e != null)
+					loaded.completeExceptionally(e);
+				else
+					pollPlaylist(loaded, newAlbum, ALBUM_POLL_MIN, deadline);
+			});
+		}
+		catch (RejectedExecutionException e) {
+			loaded.completeExceptionally(e);
+		}
+		return completeOnEdt(loaded);
+	}
+
+	/**
+	 * Downloads the playlist again, for when the songs shown may not be the ones VLC has loaded.
+	 * The returned future completes on the EDT.
+	 */
+	public CompletableFuture<VLCStatus> refreshPlaylistAsync() {
+		return runAsync(() -> {
+			updatePlaylist();
+			return getNewStatus();
+		});
+	}
+
+	/**
+	 * Downloads the library and playlist again after they were loaded from the cache,
+	 * and saves them for next time.
+	 * The returned future completes on the EDT with whether anything had changed.
+	 */
+	public CompletableFuture<Boolean> refreshLibraryAsync() {
+		return runAsync(() -> {
+			long cached = LibraryCache.hash(status);
+			updateLibrary();
+			updatePlaylist();
+			getNewStatus();
+			boolean changed = LibraryCache.hash(status) != cached;
+			if (changed)
+				reindexLibrary();
+			saveCacheLater();
+			return changed;
+		});
+	}
+
+	/**
+	 * Drops the cached and indexed albums that are no longer in the library, then indexes the new ones.
+	 */
+	private void reindexLibrary() {
+		Set<String> albums = status.libraryExists() ? status.getLibraryFolders().keySet() : Collections.emptySet();
+		status.getAlbumCache().retainAll(albums);
+		songIndex.retainAll(albums);
+		indexLibraryAsync();
+	}
+
+	/**
+	 * Indexes the songs of every album in the library in the background, a few albums at a time.
+	 * Albums with a cached playlist that are still in the library are added right away,
+	 * and the rest as their folders are listed.
+	 * Listen to {@link #getSongIndex()} to show albums as they are added.
+	 * @return completes once every album was tried
+	 */
+	public CompletableFuture<Void> indexLibraryAsync() {
+		if (!status.libraryExists())
+			return CompletableFuture.completedFuture(null);
+
+		Map<String, String> folders = status.getLibraryFolders();
+		status.getAlbumCache().entries().forEach((album, songs) -> {
+			if (folders.containsKey(album))
+				songIndex.put(album, songs.values(), true);
+		});
+		return libraryIndexer.index(folders);
+	}
+
+	/**
+	 * Saves the library and cached albums on the background scheduler.
+	 */
+	private void saveCacheLater() {
+		try {
+			scheduler.execute(() -> libraryCache.save(status));
+		}
+		catch (RejectedExecutionException ignored) {} // closed
+	}
+
+	private void sendAlbumSwitch(String newAlbum) {
+		String album = status.getLibraryFolders().get(newAlbum);
+
+		batch()
+			.add(Command.EMPTY_PLAYLIST)
+			.add(Command.PLAY_INPUT, album)
+			.sendCommands();
+	}
+
+	private void pollPlaylist(CompletableFuture<VLCStatus> loaded, String album, long delay, long deadline) {
+		try {
+			scheduler.schedule(() -> {
+				try {
+					if (playlistLoaded()) {
+						loaded.complete(getNewStatus());
+						saveCacheLater();
+					}
+					else if (System.currentTimeMillis() + delay > deadline)
+						loaded.completeExceptionally(new TimeoutException(albumTimeoutMessage(album)));
+					else
+						pollPlaylist(loaded, album, Math.min(delay * 2, ALBUM_POLL_MAX), deadline);
+				}
+				catch (RuntimeException e) {
+					loaded.completeExceptionally(e);
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException e) {
+			loaded.completeExceptionally(e);
+		}
+	}
+
+	private boolean playlistLoaded() {
+		updatePlaylist();
+		return status.playlistExists();
+	}
+
+	private static String albumTimeoutMessage(String album) {
+		return "VLC did not load the album " + album + " in time";
+	}
+
 	public VLCStatus sendCommand(Command cmd) {
 		return sendCommand(cmd, null);
 	}
 
 	public VLCStatus sendCommand(Command cmd, String val) {
+		return applyCommandResponse(sendCommandOnly(cmd, val));
+	}
 
+	/**
+	 * @return the response body, which is the status after the command was handled,
+	 * or <code>null</code> if the request failed
+	 */
+	protected String sendCommandOnly(Command cmd, String val) {
+		lastCommandTime = System.currentTimeMillis();
 		String append = val == null ? "" : String.format("&%s=%s", cmd.getParamName(), encodeUrlParam(val));
-		connect(STATUS_REQUEST + "?command=" + cmd + append);
-		return getNewStatus();
+		return connect(STATUS_REQUEST + "?command=" + cmd + append);
+	}
+
+	/**
+	 * Loads the status returned in the body of a command response, saving a second request.
+	 * With the <code>strictStatus</code> setting enabled, or if there is no body,
+	 * the status is fetched again instead.
+	 */
+	protected VLCStatus applyCommandResponse(String body) {
+		if (body == null && connectionState == ConnectionState.RECONNECTING)
+			return status;
+
+		if (body == null || UserSettings.getBoolean("strictStatus", false))
+			return getNewStatus();
+
+		status.loadStatus(body);
+		return status;
+	}
+
+	/**
+	 * @return a new, empty batch of commands to be sent with a single status update
+	 */
+	public CommandBatch batch() {
+		return new CommandBatch(this);
 	}
 
 	public VLCStatus setSourceVolume(double percentVolume) {
+		return sendCommand(Command.SET_VOLUME, toSourceVolume(percentVolume));
+	}
+
+	protected static String toSourceVolume(double percentVolume) {
 		if (percentVolume < 0) percentVolume = 0;
 		if (percentVolume > 1.25) percentVolume = 1.25;
 
-		return sendCommand(Command.SET_VOLUME, ""+(percentVolume * 256));
+		return ""+(percentVolume * 256);
 	}
 
 	public VLCStatus switchSong(int playlistID) {
@@ -170,6 +587,71 @@ public class MyVLCRemote {
 		return sendCommand(Command.PLAY_ITEM, ""+playlistID);
 	}
 
+	public CompletableFuture<VLCStatus> sendCommandAsync(Command cmd) {
+		return sendCommandAsync(cmd, null);
+	}
+
+	/**
+	 * Non-blocking version of {@link #sendCommand(Command, String)}.
+	 * The request runs on the I/O thread and the returned future completes on the EDT.
+	 */
+	public CompletableFuture<VLCStatus> sendCommandAsync(Command cmd, String val) {
+		return runAsync(() -> sendCommand(cmd, val));
+	}
+
+	/**
+	 * Non-blocking version of {@link #setSourceVolume(double)}.
+	 * The request runs on the I/O thread and the returned future completes on the EDT.
+	 */
+	public CompletableFuture<VLCStatus> setSourceVolumeAsync(double percentVolume) {
+		return runAsync(() -> setSourceVolume(percentVolume));
+	}
+
+	/**
+	 * Non-blocking version of {@link #switchSong(int)}.
+	 * The request runs on the I/O thread and the returned future completes on the EDT.
+	 */
+	public CompletableFuture<VLCStatus> switchSongAsync(int playlistID) {
+		return runAsync(() -> switchSong(playlistID));
+	}
+
+	/**
+	 * Runs <code>task</code> on the I/O executor and completes the returned future on the EDT,
+	 * so callbacks attached to it may touch Swing components directly.
+	 * Failures are also passed to the exception handler on the EDT.
+	 */
+	protected <T> CompletableFuture<T> runAsync(Supplier<T> task) {
+		try {
+			return completeOnEdt(CompletableFuture.supplyAsync(task, ioExecutor));
+		}
+		catch (RejectedExecutionException e) {
+			CompletableFuture<T> out = new CompletableFuture<>();
+			out.completeExceptionally(e);
+			return out;
+		}
+	}
+
+	/**
+	 * @return a future completed on the EDT with the result of <code>source</code>.
+	 * Failures are also passed to the exception handler on the EDT.
+	 */
+	private <T> CompletableFuture<T> completeOnEdt(CompletableFuture<T> source) {
+		CompletableFuture<T> out = new CompletableFuture<>();
+		source.whenComplete((result, e) ->
+			SwingUtilities.invokeLater(() -> {
+				if (e == null) {
+					out.complete(result);
+					return;
+				}
+				Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+				out.completeExceptionally(cause);
+				if (exceptionHandler != null)
+					exceptionHandler.accept(cause);
+			})
+		);
+		return out;
+	}
+
 	private static String encodeUrlParam(String s) {
 		try {
 			return URLEncoder.encode(s, StandardCharsets.UTF_8.toString());
@@ -179,6 +661,29 @@ public class MyVLCRemote {
 		}
 	}
 
+	public enum ConnectionState {
+		CONNECTED, RECONNECTING, DISCONNECTED
+	}
+
+	/**
+	 * What was playing when the connection was lost, to be restored after reconnecting.
+	 */
+	private static class Session {
+		private String album;
+		private SongItem song;
+		private int time, volume;
+		private boolean playing, streaming;
+
+		private Session(VLCStatus status, MediaStreamPlayer player) {
+			album = status.getSongMap().isEmpty() ? null : status.getCurrentAlbum();
+			song = status.getCurrentSong();
+			time = status.getTime();
+			volume = status.getVolume();
+			playing = status.getState() == State.PLAYING;
+			streaming = player.isPlaying();
+		}
+	}
+
 	@Getter
 	@AllArgsConstructor
 	public enum Command {
@@ -197,7 +702,9 @@ public class MyVLCRemote {
 		SET_EQ_ENABLED	("enableeq",	"Turn on or off the equalizer. 0=off, 1=on", "val"),
 		SET_EQ_PRESET	("setpreset",	"Set the equalizer preset by ID", "val"),
 		SEEK_TO			("seek", 	"Seek To: Seek to a point in playback. Supported: +<val>, -<val>, <val> where <val> is seconds or #h#m#s", "val"),
-		PLAY_ITEM		("pl_play",	"Play Item: Play a playlist item by it's ID", "id");
+		PLAY_ITEM		("pl_play",	"Play Item: Play a playlist item by it's ID", "id"),
+		EMPTY_PLAYLIST	("pl_empty",	"Empty Playlist: Remove every item from the playlist"),
+		PLAY_INPUT		("in_play",	"Play Input: Add an item to the playlist and play it", "input");
 
 		String cmd, description, paramName;
 		
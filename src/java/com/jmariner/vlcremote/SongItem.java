@@ -1,10 +1,14 @@
 package com.jmariner.vlcremote;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.commons.lang3.StringUtils;
 
-@AllArgsConstructor
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
 @Getter
 public class SongItem {
 	private int id;
@@ -13,11 +17,60 @@ public class SongItem {
 	private String album;
 	private int duration;
 
+	/** display name, built once since it is used by every sort and search */
+	@Getter(AccessLevel.NONE)
+	private String name;
+	/**
+	 * display name and title in lower case without accents, for sorting and searching,
+	 * sharing the display name or title when they are the same
+	 */
+	private String nameKey, titleKey;
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	public SongItem(int id, String title, String artist, String album, int duration) {
+		this.id = id;
+		this.title = title;
+		this.artist = artist;
+		this.album = album;
+		this.duration = duration;
+		this.name = StringUtils.isNotBlank(artist) ? artist + " - " + title : title;
+		this.nameKey = key(name);
+		// without an artist the display name is the title itself
+		this.titleKey = name == title ? nameKey : key(title);
+	}
+
+	private static String key(String s) {
+		String key = normalize(s);
+		return key.equals(s) ? s : key;
+	}
+
+	/**
+	 * @return <code>s</code> in lower case, with accents and other combining marks removed
+	 */
+	public static String normalize(String s) {
+		if (s == null) return "";
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) >= 0x80) {
+				String d = Normalizer.normalize(s, Normalizer.Form.NFD);
+				return MARKS.matcher(d).replaceAll("").toLowerCase(Locale.ROOT);
+			}
+		}
+		return s.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @return true if <code>other</code> has the same ID and details as this song
+	 */
+	public boolean sameDetails(SongItem other) {
+		return other != null && id == other.id && duration == other.duration
+				&& Objects.equals(title, other.title)
+				&& Objects.equals(artist, other.artist)
+				&& Objects.equals(album, other.album);
+	}
+
 	@Override
 	public String toString() {
-		if (StringUtils.isNotBlank(artist))
-			return String.format("%s - %s", artist, title);
-		else
-			return title;
+		return name;
 	}
 }
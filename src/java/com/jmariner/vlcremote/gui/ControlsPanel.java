@@ -6,8 +6,8 @@ import com.jmariner.vlcremote.util.GuiUtils;
 import com.jmariner.vlcremote.util.RegexFilter;
 import com.jmariner.vlcremote.util.SVGIcon;
 import com.jmariner.vlcremote.util.SimpleIcon;
+import com.jmariner.vlcremote.util.StatusSnapshot;
 import com.jmariner.vlcremote.util.UserSettings;
-import com.jmariner.vlcremote.util.VLCStatus;
 import com.jmariner.vlcremote.util.VLCStatus.State;
 import org.apache.commons.lang3.StringUtils;
 
@@ -174,7 +174,7 @@ public class ControlsPanel extends JPanel {
 		toggleMuteButton.setSelected(muted);
 	}
 	
-	protected void update(VLCStatus status) {
+	protected void update(StatusSnapshot status) {
 		
 		togglePlaylistButton.setSelected(gui.isPlaylistAreaShowing());
 		togglePlaylistButton.setToolTipText(gui.isPlaylistAreaShowing() ? "Hide playlist" : "Show playlist");
@@ -222,8 +222,7 @@ public class ControlsPanel extends JPanel {
 		Command cmd = Command.forName(e.getActionCommand());
 		assert cmd != null;
 
-		VLCStatus status = gui.getRemote().sendCommand(cmd);
-		gui.updateInterface(status);
+		gui.getRemote().sendCommandAsync(cmd).thenAccept(gui::updateInterface);
 	}
 
 	private void volumeChanged(ChangeEvent e) {
@@ -2,8 +2,8 @@ package com.jmariner.vlcremote.gui;
 
 import com.jmariner.vlcremote.MyVLCRemote.Command;
 import com.jmariner.vlcremote.util.GuiUtils;
+import com.jmariner.vlcremote.util.StatusSnapshot;
 import com.jmariner.vlcremote.util.UserSettings;
-import com.jmariner.vlcremote.util.VLCStatus;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -119,8 +119,10 @@ public class MainMenuBar extends JMenuBar {
 
 			int presetId = eqPresets.indexOf(s);
 			b.addActionListener(e -> {
-				gui.getRemote().sendCommand(Command.SET_EQ_ENABLED, "1");
-				gui.getRemote().sendCommand(Command.SET_EQ_PRESET, ""+presetId);
+				gui.getRemote().batch()
+					.add(Command.SET_EQ_ENABLED, "1")
+					.add(Command.SET_EQ_PRESET, ""+presetId)
+					.sendAsync();
 			});
 
 			setEqPreset.add(b);
@@ -161,7 +163,7 @@ public class MainMenuBar extends JMenuBar {
 		resetPassSave.addActionListener(this::resetPass);
 	}
 	
-	protected void update(VLCStatus status) {
+	protected void update(StatusSnapshot status) {
 		
 		if (eqPresets == null) {
 			eqPresets = status.getEqPresets();
@@ -2,7 +2,9 @@ package com.jmariner.vlcremote.gui;
 
 import com.jmariner.vlcremote.MyVLCRemote;
 import com.jmariner.vlcremote.util.GuiUtils;
-import com.jmariner.vlcremote.util.VLCStatus;
+import com.jmariner.vlcremote.util.PlaybackClock;
+import com.jmariner.vlcremote.util.StatusSnapshot;
+import com.jmariner.vlcremote.util.UserSettings;
 
 import javax.swing.*;
 import java.awt.*;
@@ -18,6 +20,10 @@ public class ProgressPanel extends JPanel {
 	private JLabel positionLabel, lengthLabel;
 	private JProgressBar progressBar;
 
+	private PlaybackClock clock;
+	private Timer repaintTimer;
+	private int shownTime = -1;
+
 	private static final String ZERO_TIME = "00:00:00";
 	private static final Dimension TIME_LABEL_SIZE = new Dimension(66, 25);
 
@@ -25,6 +31,12 @@ public class ProgressPanel extends JPanel {
 		super(new BorderLayout(MAIN_PADDING, 0), true);
 
 		this.gui = gui;
+		this.clock = new PlaybackClock();
+
+		// advance the progress from the local clock between status updates
+		int fps = Math.max(1, UserSettings.getInt("progressFps", 30));
+		repaintTimer = new Timer(1000 / fps, e -> showClock());
+		repaintTimer.setCoalesce(true);
 
 		init();
 		progressBar.addMouseListener(new ProgressBarMouseListener());
@@ -46,15 +58,27 @@ public class ProgressPanel extends JPanel {
 		this.add(lengthLabel, BorderLayout.EAST);
 	}
 
-	protected void update(VLCStatus status) {
-		int currentTime = status.getTime();
-		double positionPercent = status.getPosition();
+	protected void update(StatusSnapshot status) {
+		clock.sync(status);
+
+		if (clock.isRunning())
+			repaintTimer.start();
+		else
+			repaintTimer.stop();
 
-		positionLabel.setText(GuiUtils.formatTime(currentTime));
-		progressBar.setValue((int) (positionPercent * progressBar.getMaximum()));
+		showClock();
+	}
+
+	private void showClock() {
+		int currentTime = (int) clock.getTime();
+		if (currentTime != shownTime) {
+			positionLabel.setText(GuiUtils.formatTime(currentTime));
+			shownTime = currentTime;
+		}
+		progressBar.setValue((int) (clock.getPosition() * progressBar.getMaximum()));
 	}
 
-	protected void updateLength(VLCStatus status) {
+	protected void updateLength(StatusSnapshot status) {
 		int length = status.getLength();
 		lengthLabel.setText(GuiUtils.formatTime(length));
 	}
@@ -66,9 +90,9 @@ public class ProgressPanel extends JPanel {
 				double percent = e.getPoint().x / ((double) progressBar.getWidth());
 				int newVal = (int) (progressBar.getMinimum() + ((progressBar.getMaximum() - progressBar.getMinimum()) * percent));
 				progressBar.setValue(newVal);
-				VLCStatus status = gui.getRemote()
-						.sendCommand(MyVLCRemote.Command.SEEK_TO, (percent * 100) + "%");
-				gui.updateInterface(status);
+				gui.getRemote()
+						.sendCommandAsync(MyVLCRemote.Command.SEEK_TO, (percent * 100) + "%")
+						.thenAccept(gui::updateInterface);
 			}
 		}
 	}
@@ -2,10 +2,10 @@ package com.jmariner.vlcremote.gui;
 
 import com.jmariner.vlcremote.MyVLCRemote;
 import com.jmariner.vlcremote.MyVLCRemote.Command;
+import com.jmariner.vlcremote.MyVLCRemote.ConnectionState;
 import com.jmariner.vlcremote.gui.playlist.MasterPlaylistTableTab;
 import com.jmariner.vlcremote.gui.playlist.PlaylistPanel;
 import com.jmariner.vlcremote.util.*;
-import com.jmariner.vlcremote.util.VLCStatus.State;
 import com.jtattoo.plaf.noire.NoireLookAndFeel;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -21,9 +21,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -60,10 +58,19 @@ public class RemoteInterface extends JFrame {
 	@Getter
 	private Map<String, Runnable> actions;
 
-	private ScheduledFuture<?> updateLoop;
+	@Getter(AccessLevel.PROTECTED)
+	private AdaptivePollScheduler updateLoop;
 
 	@Getter @Setter
 	private boolean connected, playlistAreaShowing;
+
+	private volatile boolean windowHidden;
+
+	private AtomicReference<StatusSnapshot> pendingSnapshot;
+	private StatusSnapshot shownSnapshot;
+
+	/** message of the error dialog currently showing, so the same error isn't shown twice at once */
+	private String shownError;
 	
 	private static final String PRIMARY_CARD = "Main";
 	private static final String SONGLIST_CARD = "Song List";
@@ -92,6 +99,7 @@ public class RemoteInterface extends JFrame {
 		textFields = new ArrayList<>();
 		controlComponents = new ArrayList<>();
 		actions = new HashMap<>();
+		pendingSnapshot = new AtomicReference<>();
 
 		menuBar = new MainMenuBar(this);
 		loginPanel = new LoginPanel(this);
@@ -150,6 +158,7 @@ public class RemoteInterface extends JFrame {
 		this.setResizable(false);
 		this.pack();
 		this.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+		this.addWindowListener(new VisibilityListener());
 		Runtime.getRuntime().addShutdownHook(new CleanupOnShutdown());
 		
 		setVisibleCard(PRIMARY_CARD);
@@ -192,7 +201,7 @@ public class RemoteInterface extends JFrame {
 		this.revalidate();
 		this.pack();
 
-		controlsPanel.update((VLCStatus)null);
+		controlsPanel.update((StatusSnapshot)null);
 	}
 	
 	protected void setVisibleCard(String cardName) {
@@ -236,18 +245,50 @@ public class RemoteInterface extends JFrame {
 		connected = remote.isConnected();
 
 		if (connected) {
+			remote.setConnectionListener(this::connectionChanged);
 			loginPanel.saveConnectionInfo();
 
 			initPost();
 
-			remote.setSourceVolume(1);
-			remote.sendCommand(Command.PLAY);
-			updateInterface(remote.getNewStatus());
-			startUpdateLoop();
-			remote.getPlayer().start();
+			// the playlist from the last session is already showing, check it's still up to date
+			if (remote.isRestoredFromCache())
+				remote.refreshLibraryAsync().thenAccept(changed -> {
+					if (changed) {
+						playlistPanel.reloadLibrary();
+						playlistPanel.reloadPlaylist();
+					}
+				});
+
+			remote.batch()
+				.setSourceVolume(1)
+				.add(Command.PLAY)
+				.sendAsync()
+				.thenAccept(s -> {
+					updateInterface(s);
+					startUpdateLoop();
+					remote.getPlayer().start();
+					// fills the full song list in the background
+					remote.indexLibraryAsync();
+				});
 		}
+		else
+			remote.close();
 	}
 	
+	/**
+	 * Shows when the remote is reconnecting, and refreshes the playlist and status once it's back.
+	 * The rest of the interface stays as it was set up by {@link #initPost()}.
+	 */
+	private void connectionChanged(ConnectionState state) {
+		if (state == ConnectionState.RECONNECTING)
+			this.setTitle("VLC Remote (reconnecting...)");
+		else if (state == ConnectionState.CONNECTED) {
+			this.setTitle("VLC Remote");
+			playlistPanel.reloadPlaylist();
+			updateInterface(remote.getStatus());
+		}
+	}
+
 	private void initPost() {
 		mainPanel.remove(loginPanel);
 
@@ -271,29 +312,45 @@ public class RemoteInterface extends JFrame {
 		updateInterface(null);
 	}
 
+	/**
+	 * Can be called from any thread. The status is copied right away and shown on the EDT,
+	 * where only the panels affected by what changed since the last shown status are refreshed.
+	 * If several statuses arrive before the EDT gets to them, only the newest one is shown.
+	 */
 	public void updateInterface(VLCStatus status) {
 
-		controlsPanel.updateVolume();
+		if (status == null) {
+			SwingUtilities.invokeLater(controlsPanel::updateVolume);
+			return;
+		}
+
+		if (pendingSnapshot.getAndSet(status.snapshot()) == null)
+			SwingUtilities.invokeLater(this::showPendingStatus);
+	}
 
-		if (status == null) return; // everything past here requires status
+	private void showPendingStatus() {
+		StatusSnapshot status = pendingSnapshot.getAndSet(null);
 
-		boolean validState =
-				status.getState() == State.PAUSED ||
-				status.getState() == State.PLAYING;
+		if (status == null || !status.isPlayingOrPaused()) return;
 
-		if (!validState) return;
+		int changes = status.changesFrom(shownSnapshot);
+		shownSnapshot = status;
 
-		String text = status.getCurrentSong().toString();
-		if (!statusPanel.getTitle().equals(text)) { // if we're on a new song
-			statusPanel.setTitle(text);
+		if ((changes & StatusSnapshot.VOLUME) != 0)
+			controlsPanel.updateVolume();
+
+		if ((changes & StatusSnapshot.CURRENT_ID) != 0 && status.getCurrentSong() != null) {
+			statusPanel.setTitle(status.getCurrentSong().toString());
 			progressPanel.updateLength(status);
 			playlistPanel.update(status);
 		}
-		
-		controlsPanel.update(status);
-		progressPanel.update(status);
-		menuBar.update(status);
 
+		if ((changes & (StatusSnapshot.STATE | StatusSnapshot.FLAGS)) != 0)
+			controlsPanel.update(status);
+		if ((changes & (StatusSnapshot.STATE | StatusSnapshot.TIME | StatusSnapshot.CURRENT_ID)) != 0)
+			progressPanel.update(status);
+		if ((changes & StatusSnapshot.EQ_PRESET) != 0)
+			menuBar.update(status);
 	}
 
 	public void addControlComponent(JComponent c) {
@@ -309,30 +366,50 @@ public class RemoteInterface extends JFrame {
 	}
 
 	private void startUpdateLoop() {
-		updateLoop = Executors
-				.newSingleThreadScheduledExecutor(r -> new Thread(r, "Update Loop"))
-				.scheduleAtFixedRate(() -> {
-					updateInterface(remote.getNewStatus());
-					heartbeat();
-				}, 0, UserSettings.getInt("updateDelay", 1000), TimeUnit.MILLISECONDS
+		int baseDelay = UserSettings.getInt("updateDelay", 1000);
+		updateLoop = new AdaptivePollScheduler("Update Loop",
+				() -> {
+					// while reconnecting, the remote checks the connection by itself
+					if (remote.isConnected())
+						updateInterface(remote.getNewStatus());
+				},
+				() -> AdaptivePollScheduler.computeDelay(
+						baseDelay,
+						remote.getStatus(),
+						windowHidden,
+						System.currentTimeMillis() - remote.getLastCommandTime())
 		);
+		updateLoop.start();
 	}
 
 	protected void restartUpdateLoop() {
-		if (!updateLoop.isCancelled())
-			updateLoop.cancel(true);
+		if (updateLoop != null)
+			updateLoop.stop();
 		startUpdateLoop();
 	}
 	
-	private void heartbeat() {
-		// TODO heartbeat
-	}
-
 	public void clearFocus() {
 		mainPanel.requestFocus();
 	}
 
 	protected void handleException(Throwable e) {
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(() -> handleException(e));
+			return;
+		}
+
+		if (Objects.equals(e.getMessage(), shownError)) return;
+		shownError = e.getMessage();
+
+		try {
+			showException(e);
+		}
+		finally {
+			shownError = null;
+		}
+	}
+
+	private void showException(Throwable e) {
 		String text = "An error has occurred<br><br>" + StringEscapeUtils.escapeHtml4(e.getMessage());
 		
 		String[] ops = new String[]{"OK", "Details >>"};
@@ -419,9 +496,21 @@ public class RemoteInterface extends JFrame {
 		}
 	}
 
+	private class VisibilityListener extends WindowAdapter {
+		@Override
+		public void windowIconified(WindowEvent e) { windowHidden = true; }
+		@Override
+		public void windowDeiconified(WindowEvent e) { windowHidden = false; }
+	}
+
 	private class CleanupOnShutdown extends Thread {
 		@Override
 		public void run() {
+			// preferences are written behind, so whatever is still waiting is written
+			// before anything that can fail or wait on VLC
+			Favorites.flush(2000);
+			SortedFilePreferences.shutdown(2000);
+
 			if (connected) {
 				remote.getPlayer().stop();
 				remote.sendCommand(Command.PAUSE);
@@ -1,14 +1,24 @@
 package com.jmariner.vlcremote.gui.playlist;
 
 import java.awt.BorderLayout;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.table.AbstractTableModel;
 import org.apache.commons.lang3.StringUtils;
 import org.jdesktop.swingx.JXTable;
@@ -16,6 +26,7 @@ import org.jdesktop.swingx.JXTable;
 import com.jmariner.vlcremote.SongItem;
 import com.jmariner.vlcremote.gui.RemoteInterface;
 import com.jmariner.vlcremote.util.GuiUtils;
+import com.jmariner.vlcremote.util.SongIndex;
 
 import lombok.Getter;
 
@@ -26,6 +37,23 @@ public class MasterPlaylistTableTab extends JPanel {
 	private RemoteInterface gui;
 	
 	private JXTable table;
+	private SongTableModel model;
+	
+	/** albums indexed since the last merge, so albums indexed together are shown at once */
+	private final Set<String> pendingAlbums = new LinkedHashSet<>();
+	
+	/** merges indexed albums into the sorted song list, so the EDT only swaps the result in */
+	private final ExecutorService merger = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "Song List Merger");
+		t.setDaemon(true);
+		return t;
+	});
+	
+	/** the sorted songs and the songs shown for each album, only used by the merger */
+	private List<SongItem> merged = new ArrayList<>();
+	private final Map<String, List<SongItem>> mergedAlbums = new HashMap<>();
+	
+	private static final Comparator<SongItem> BY_NAME = Comparator.comparing(SongItem::getNameKey);
 	
 	public MasterPlaylistTableTab(RemoteInterface gui) {
 		this.gui = gui;
@@ -56,8 +84,7 @@ public class MasterPlaylistTableTab extends JPanel {
 	}
 	
 	public void initPost() {
-		SongTableModel model = new SongTableModel();
-		model.update();
+		model = new SongTableModel();
 		table.setModel(model);
 		table.packAll();
 		
@@ -67,19 +94,94 @@ public class MasterPlaylistTableTab extends JPanel {
 				table.getColumnModel().getColumn(c).setMinWidth(w);
 		}
 		
+		SongIndex index = gui.getRemote().getSongIndex();
+		index.addListener(this::refreshLater);
+		// albums indexed before the listener was added; one added in between is just merged again
+		index.getAlbums().forEach(this::refreshLater);
+	}
+	
+	private void refreshLater(String album) {
+		synchronized (pendingAlbums) {
+			boolean scheduled = !pendingAlbums.isEmpty();
+			pendingAlbums.add(album);
+			if (scheduled) return;
+		}
+		merger.execute(this::merge);
+	}
+	
+	/**
+	 * Replaces the songs of the pending albums in the sorted list with their indexed songs.
+	 * Only the new songs are sorted, and then merged into the list in one pass.
+	 */
+	private void merge() {
+		List<String> albums;
+		synchronized (pendingAlbums) {
+			albums = new ArrayList<>(pendingAlbums);
+			pendingAlbums.clear();
+		}
+		
+		SongIndex index = gui.getRemote().getSongIndex();
+		Set<SongItem> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<SongItem> added = new ArrayList<>();
+		for (String album : albums) {
+			List<SongItem> songs = index.getSongs(album);
+			List<SongItem> old = mergedAlbums.put(album, songs);
+			if (old != null)
+				stale.addAll(old);
+			added.addAll(songs);
+		}
+		added.sort(BY_NAME);
+		
+		List<SongItem> out = new ArrayList<>(merged.size() - stale.size() + added.size());
+		int a = 0;
+		for (SongItem s : merged) {
+			if (stale.contains(s)) continue;
+			while (a < added.size() && BY_NAME.compare(added.get(a), s) < 0)
+				out.add(added.get(a++));
+			out.add(s);
+		}
+		out.addAll(added.subList(a, added.size()));
+		
+		// never changed after this, so the EDT can read it while the next merge builds a new one
+		merged = out;
+		SwingUtilities.invokeLater(() -> model.setSongs(out));
 	}
 	
 	private class SongTableModel extends AbstractTableModel {
 		
-		private List<SongItem> songs;
+		private List<SongItem> songs = new ArrayList<>();
+		
+		/**
+		 * Shows a new sorted list, keeping the selected songs that are still in it selected.
+		 */
+		protected void setSongs(List<SongItem> songs) {
+			List<SongItem> selected = new ArrayList<>();
+			for (int r : table.getSelectedRows())
+				selected.add(this.songs.get(table.convertRowIndexToModel(r)));
+			
+			this.songs = songs;
+			fireTableDataChanged();
+			
+			for (SongItem s : selected) {
+				int r = indexOf(s);
+				if (r == -1) continue;
+				r = table.convertRowIndexToView(r);
+				if (r != -1)
+					table.addRowSelectionInterval(r, r);
+			}
+		}
 		
-		protected void update() {
-			// TODO load ALL songs from ALL albums and parse into the hashmap
+		private int indexOf(SongItem song) {
+			int i = Collections.binarySearch(songs, song, BY_NAME);
+			if (i < 0) return -1;
 			
-			songs = gui.getRemote().getStatus() 
-					.getSongMap().values().stream() // load current album only for now
-					.sorted((s1, s2) -> s1.toString().compareTo(s2.toString()))
-					.collect(Collectors.toList());
+			// songs with the same name are next to each other
+			while (i > 0 && BY_NAME.compare(songs.get(i - 1), song) == 0)
+				i--;
+			for (; i < songs.size() && BY_NAME.compare(songs.get(i), song) == 0; i++)
+				if (songs.get(i) == song)
+					return i;
+			return -1;
 		}
 
 		@Override
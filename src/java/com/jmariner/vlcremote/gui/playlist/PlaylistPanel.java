@@ -6,6 +6,8 @@ import com.jmariner.vlcremote.gui.RemoteInterface;
 import com.jmariner.vlcremote.util.GuiUtils;
 import com.jmariner.vlcremote.util.SVGIcon;
 import com.jmariner.vlcremote.util.SimpleIcon;
+import com.jmariner.vlcremote.util.SongStore;
+import com.jmariner.vlcremote.util.StatusSnapshot;
 import com.jmariner.vlcremote.util.UserSettings;
 import com.jmariner.vlcremote.util.VLCStatus;
 
@@ -16,8 +18,8 @@ import javax.swing.event.ListSelectionEvent;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.Arrays;
-import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static com.jmariner.vlcremote.util.Constants.*;
@@ -45,8 +47,9 @@ public class PlaylistPanel extends JPanel {
 	protected ClearableTextField searchField;
 	protected JToggleButton showFavoritesButton;
 	protected boolean filterEnabled;
+	private boolean switchingAlbum;
 
-	protected Map<Integer, SongItem> songMap;
+	protected SongStore songMap;
 
 	public PlaylistPanel(RemoteInterface gui) {
 		this.gui = gui;
@@ -162,7 +165,7 @@ public class PlaylistPanel extends JPanel {
 		albumSelectionBox.addActionListener(this::switchAlbum);
 		sortSelectionBox.addActionListener(this::switchSortType);
 		sortOrderButton.addActionListener(this::switchSortOrder);
-		searchField.setChangeAction(this::filterChanged);
+		searchField.setChangeAction(this::searchChanged);
 
 		PlaylistListener listener = new PlaylistListener();
 		table.addMouseListener(listener);
@@ -188,9 +191,16 @@ public class PlaylistPanel extends JPanel {
 	}
 	
 	public void initPost() {
+		this.songMap = gui.getRemote().getStatus().getSongMap();
+		reloadLibrary();
+		table.initPost();
+	}
+
+	/**
+	 * Shows the albums of the media library again after it was downloaded.
+	 */
+	public void reloadLibrary() {
 		VLCStatus status = gui.getRemote().getStatus();
-		this.songMap = status.getSongMap();
-		
 		if (status.libraryExists()) {
 			albumSelectionBox.setModel(new DefaultComboBoxModel<>(
 					status.getLibraryFolders().keySet()
@@ -198,16 +208,15 @@ public class PlaylistPanel extends JPanel {
 			));
 			albumSelectionBox.setVisible(true);
 		}
-		
-		table.initPost();
 	}
 	
-	public void update(VLCStatus status) {
+	public void update(StatusSnapshot status) {
 		currentSong = status.getCurrentSong();
 		if (table.getSelected() == null || !table.getSelected().equals(currentSong))
 			scrollToCurrent(null);
 		viewCurrentButton.setEnabled(table.getRowOf(currentSong) > -1);
-		albumSelectionBox.setSelectedItem(status.getCurrentAlbum());
+		if (!switchingAlbum)
+			albumSelectionBox.setSelectedItem(status.getCurrentAlbum());
 	}
 	
 	private void switchSortOrder(ActionEvent e) {
@@ -226,13 +235,40 @@ public class PlaylistPanel extends JPanel {
 	
 	private void switchAlbum(AWTEvent e) {
 		String album = (String) albumSelectionBox.getSelectedItem();
-		if (!album.equals(gui.getRemote().getStatus().getCurrentAlbum())) {
-			gui.getRemote().switchAlbum(album);
-			this.songMap = gui.getRemote().getStatus().getSongMap();
-			table.initPost();
-			filterChanged();
-			scrollToCurrent(null);
-		}
+		if (switchingAlbum || album.equals(gui.getRemote().getStatus().getCurrentAlbum()))
+			return;
+
+		switchingAlbum = true;
+		albumSelectionBox.setEnabled(false);
+
+		CompletableFuture<VLCStatus> loaded = gui.getRemote().switchAlbumAsync(album);
+		reloadPlaylist(); // shows the cached songs, if the album was loaded before
+
+		loaded.whenComplete((s, ex) -> {
+			switchingAlbum = false;
+			albumSelectionBox.setEnabled(true);
+			if (s != null) {
+				reloadPlaylist();
+				gui.updateInterface(s);
+			}
+			else {
+				// the cached songs shown may not be what VLC has, and their IDs may be out of date
+				gui.getRemote().refreshPlaylistAsync().thenAccept(status -> {
+					reloadPlaylist();
+					gui.updateInterface(status);
+				});
+			}
+		});
+	}
+
+	/**
+	 * Shows the songs of the current playlist again after it was replaced.
+	 */
+	public void reloadPlaylist() {
+		this.songMap = gui.getRemote().getStatus().getSongMap();
+		table.reload();
+		filterChanged();
+		scrollToCurrent(null);
 	}
 	
 	private void clearFilters(AWTEvent e) {
@@ -279,15 +315,25 @@ public class PlaylistPanel extends JPanel {
 
 	private void filterChanged() {
 		table.setFilterEnabled(true);
+		filterApplied();
+	}
+
+	// searching is done in the background, since it runs on every keystroke
+	private void searchChanged() {
+		table.setFilterEnabledLater(this::filterApplied);
+	}
+
+	private void filterApplied() {
 		viewCurrentButton.setEnabled(table.getRowOf(currentSong) > -1);
 	}
 	
 	protected void switchSong(int id) {
-		VLCStatus s = gui.getRemote().switchSong(id);
-		if (UserSettings.getBoolean("restartOnTrackChange", false))
-			gui.getRemote().getPlayer().restart(1000);
-		table.scrollToSelected();
-		gui.updateInterface(s);
+		gui.getRemote().switchSongAsync(id).thenAccept(s -> {
+			if (UserSettings.getBoolean("restartOnTrackChange", false))
+				gui.getRemote().getPlayer().restart(1000);
+			table.scrollToSelected();
+			gui.updateInterface(s);
+		});
 	}
 	
 	private void scrollToCurrent(AWTEvent e) {
@@ -21,15 +21,16 @@ public class PlaylistTable extends JTable {
 	@Getter
 	private int interactiveRow;
 	
-	private static final LinkedHashMap<String, Comparator<SongItem>> COMPARATORS =
+	static final LinkedHashMap<String, Comparator<SongItem>> COMPARATORS =
 			new LinkedHashMap<>();
 	
 	protected static final List<String> ORDERS;
 	
 	static {
-		COMPARATORS.put("name", (s1, s2) -> s1.toString().compareTo(s2.toString()));
-		COMPARATORS.put("title", (s1, s2) -> s1.getTitle().compareTo(s2.getTitle()));
-		COMPARATORS.put("duration", (s1, s2) -> new Integer(s1.getDuration()).compareTo(s2.getDuration()));
+		// these only compare keys stored in the songs, nothing is built or boxed per comparison
+		COMPARATORS.put("name", (s1, s2) -> s1.getNameKey().compareTo(s2.getNameKey()));
+		COMPARATORS.put("title", (s1, s2) -> s1.getTitleKey().compareTo(s2.getTitleKey()));
+		COMPARATORS.put("duration", (s1, s2) -> Integer.compare(s1.getDuration(), s2.getDuration()));
 		ORDERS = new ArrayList<>(COMPARATORS.keySet());
 	}
 			
@@ -64,11 +65,35 @@ public class PlaylistTable extends JTable {
 		this.setRowSorter(sorter);
 	}
 	
+	/**
+	 * Shows the panel's current songs, keeping the selection and sort order.
+	 */
+	protected void reload() {
+		util.getModel().update();
+	}
+
 	protected void setFilterEnabled(boolean enabled) {
 		playlist.filterEnabled = enabled;
+		if (enabled)
+			util.getFilter().update();
+		else
+			util.getFilter().cancel();
 		sorter.setRowFilter(filter);
 	}
 
+	/**
+	 * Filters the table with the current search text once the user stops typing,
+	 * finding the matching songs in the background.
+	 * @param applied called on the EDT after the table shows the new matches
+	 */
+	protected void setFilterEnabledLater(Runnable applied) {
+		util.getFilter().updateLater(() -> {
+			playlist.filterEnabled = true;
+			sorter.setRowFilter(filter);
+			applied.run();
+		});
+	}
+
 	protected void sortBy(String type, boolean ascending) {
 		assert COMPARATORS.containsKey(type);
 		sorter.setComparator(COMPARATORS.get(type));
@@ -77,30 +102,19 @@ public class PlaylistTable extends JTable {
 
 	/**
 	 * Gets the table row of the <code>SongItem</code>. This is affected by filters.
-	 * @param item the item to find
+	 * @param item the item to find, matched by playlist ID
 	 * @return row where <code>item</code> is located or <code>-1</code> if it isn't found
 	 */
 	protected int getRowOf(SongItem item) {
-		int r = -1;
-		while (true) {
-			try {
-				if (getValueAt(++r, 0).equals(item)) return r;
-			}
-			catch (IndexOutOfBoundsException e) { return -1; }
-		}
+		if (item == null) return -1;
+		int r = util.getModel().getRowOf(item.getId());
+		return r == -1 ? -1 : convertRowIndexToView(r);
 	}
 	
 	protected void setSelected(SongItem item) {
-		int r = -1;
-		while (true) {
-			try {
-				if (getValueAt(++r, 0).equals(item)) {
-					setRowSelectionInterval(r, r);
-					return;
-				}
-			}
-			catch (IndexOutOfBoundsException e) { return; }
-		}
+		int r = getRowOf(item);
+		if (r > -1)
+			setRowSelectionInterval(r, r);
 	}
 	
 	protected SongItem getSelected() {
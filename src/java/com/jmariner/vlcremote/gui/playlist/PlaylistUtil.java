@@ -15,6 +15,9 @@ import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Getter
 public class PlaylistUtil {
@@ -53,6 +56,7 @@ public class PlaylistUtil {
 		this.cellPanel = new CellPanel();
 		this.model = new Model();
 		this.sorter = new Sorter();
+		this.sorter.setSortsOnUpdates(true);
 	}
 
 	protected void initPost() {
@@ -207,26 +211,116 @@ public class PlaylistUtil {
 
 	}
 
-	private class Filter extends RowFilter<TableModel, Integer> {
-		@Override
-		public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+	/**
+	 * Shows the songs found by the last {@link #update()} or {@link #updateLater(Runnable)}.
+	 * The matches are looked up by song ID, so they stay valid while the model moves rows around.
+	 */
+	protected class Filter extends RowFilter<TableModel, Integer> {
+
+		/** IDs of the songs that pass the filters */
+		private BitSet matches;
+
+		/** increased by every update and keystroke, so searches started before it are dropped */
+		private final AtomicInteger generation = new AtomicInteger();
+		private final ExecutorService worker;
+		private final javax.swing.Timer delay;
+		/** callback of the search that hasn't been shown yet, or null if there is none */
+		private Runnable whenApplied;
+
+		private Filter() {
+			worker = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "Playlist Filter");
+				t.setDaemon(true);
+				return t;
+			});
+			delay = new javax.swing.Timer(UserSettings.getInt("searchDelay", 150), e -> search());
+			delay.setRepeats(false);
+		}
 
-			if (!playlist.filterEnabled)
-				return true;
+		/**
+		 * Finds the songs matching the current search text and favorites setting right away.
+		 * A search that hasn't been shown yet is started again, so its callback still runs.
+		 */
+		protected void update() {
+			generation.incrementAndGet();
+			matches = filterMatches(model.searchIndex, playlist.songMap,
+					playlist.searchField.getText(),
+					playlist.showFavoritesButton.isSelected());
+			if (whenApplied != null)
+				delay.restart();
+		}
 
-			String filterText = playlist.searchField.getText();
-			String name = entry.getStringValue(0);
-			boolean show = true;
+		/**
+		 * Finds the matching songs on a background thread once the search text stops changing for a moment.
+		 * A search that is overtaken by a newer one is dropped without being shown,
+		 * and one overtaken by {@link #update()} is started again with the new songs.
+		 * @param applied called on the EDT after the matches are stored, to show them
+		 */
+		protected void updateLater(Runnable applied) {
+			whenApplied = applied;
+			generation.incrementAndGet();
+			delay.restart();
+		}
 
-			if (playlist.showFavoritesButton.isSelected())
-				show = UserSettings.isFavorite(name);
+		/**
+		 * Drops any search that hasn't been shown yet.
+		 */
+		protected void cancel() {
+			delay.stop();
+			generation.incrementAndGet();
+			whenApplied = null;
+		}
 
-			if (!filterText.isEmpty())
-				show &= name.toUpperCase().contains(filterText.toUpperCase());
+		private void search() {
+			int gen = generation.incrementAndGet();
+
+			// everything the search needs is read here on the EDT, the index and song store aren't changed later
+			SearchIndex index = model.searchIndex;
+			SongStore songs = playlist.songMap;
+			String text = playlist.searchField.getText();
+			boolean favoritesOnly = playlist.showFavoritesButton.isSelected();
+			Runnable applied = whenApplied;
+			if (index == null) return;
+
+			worker.execute(() -> {
+				if (generation.get() != gen) return;
+				BitSet found = filterMatches(index, songs, text, favoritesOnly);
+
+				SwingUtilities.invokeLater(() -> {
+					if (generation.get() != gen) return;
+					matches = found;
+					whenApplied = null;
+					applied.run();
+				});
+			});
+		}
 
-			return show;
+		@Override
+		public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+
+			if (!playlist.filterEnabled || matches == null)
+				return true;
+
+			return matches.get(((SongItem) entry.getValue(0)).getId());
+		}
+	}
 
+	/**
+	 * Finds the songs that pass the playlist filters.
+	 * @param filterText search text, matched case and accent insensitively anywhere in the song's name
+	 * @param favoritesOnly whether only favorite songs are shown
+	 * @return the IDs of the matching songs
+	 */
+	static BitSet filterMatches(SearchIndex index, SongStore songs, String filterText, boolean favoritesOnly) {
+		BitSet matches = index.search(filterText);
+
+		if (favoritesOnly) {
+			for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1))
+				if (!UserSettings.isFavorite(songs.get(id).toString()))
+					matches.clear(id);
 		}
+
+		return matches;
 	}
 
 	protected class Sorter extends TableRowSorter<TableModel> {
@@ -255,9 +349,110 @@ public class PlaylistUtil {
 	protected class Model extends AbstractTableModel {
 
 		private List<SongItem> songs;
-		
+		/** row of every song by playlist ID */
+		private Map<Integer, Integer> rows;
+		private SongStore shown;
+		private SearchIndex searchIndex;
+
+		/**
+		 * Loads the panel's current songs, firing one event for each kind of change.
+		 * The rows aren't in any order since the sorter orders them, so removed rows
+		 * are filled with the last rows instead of shifting every row after them.
+		 * The selected song stays selected, even if its row was moved.
+		 */
 		protected void update() {
-			songs = new ArrayList<>(playlist.songMap.values());
+			int r = table.getSelectedRow();
+			SongItem selected = r == -1 ? null : (SongItem) table.getValueAt(r, 0);
+
+			load();
+
+			if (selected != null) {
+				SongItem now = shown.get(selected.getId());
+				SongItem current = table.getSelected();
+				if (now != null && (current == null || current.getId() != now.getId()))
+					table.setSelected(now);
+			}
+		}
+
+		private void load() {
+			PlaylistDiff diff = PlaylistDiff.between(shown, playlist.songMap);
+			shown = playlist.songMap;
+
+			// the filter has to know the new songs before the sorter is told about them
+			if (searchIndex == null || !diff.isEmpty()) {
+				searchIndex = shown.getSearchIndex();
+				filter.update();
+			}
+
+			// replacing most of the playlist, usually another album, is faster as a single reset
+			if (songs == null || diff.size() > songs.size() / 2) {
+				songs = new ArrayList<>(shown.values());
+				rows = new HashMap<>(songs.size() * 4 / 3 + 1);
+				for (int r = 0; r < songs.size(); r++)
+					rows.put(songs.get(r).getId(), r);
+				fireTableDataChanged();
+				return;
+			}
+
+			// first and last row whose song was replaced
+			int[] updated = { Integer.MAX_VALUE, -1 };
+
+			removeRows(diff.getRemoved(), updated);
+
+			for (SongItem s : diff.getChanged()) {
+				int r = rows.get(s.getId());
+				songs.set(r, s);
+				updated[0] = Math.min(updated[0], r);
+				updated[1] = Math.max(updated[1], r);
+			}
+
+			if (updated[1] != -1)
+				fireTableRowsUpdated(updated[0], updated[1]);
+
+			if (!diff.getAdded().isEmpty()) {
+				int first = songs.size();
+				for (SongItem s : diff.getAdded()) {
+					rows.put(s.getId(), songs.size());
+					songs.add(s);
+				}
+				fireTableRowsInserted(first, songs.size() - 1);
+			}
+		}
+
+		/**
+		 * Fills the rows of the removed songs with the kept songs from the end of the list,
+		 * then drops the end of the list with a single event.
+		 * @param updated widened to include the rows that were filled
+		 */
+		private void removeRows(Collection<SongItem> removed, int[] updated) {
+			if (removed.isEmpty()) return;
+
+			BitSet gone = new BitSet(songs.size());
+			for (SongItem s : removed)
+				gone.set(rows.remove(s.getId()));
+
+			int size = songs.size();
+			int newSize = size - removed.size();
+			int last = size - 1;
+			for (int r = gone.nextSetBit(0); r >= 0 && r < newSize; r = gone.nextSetBit(r + 1)) {
+				while (gone.get(last)) last--;
+				SongItem moved = songs.get(last--);
+				songs.set(r, moved);
+				rows.put(moved.getId(), r);
+				updated[0] = Math.min(updated[0], r);
+				updated[1] = Math.max(updated[1], r);
+			}
+
+			songs.subList(newSize, size).clear();
+			fireTableRowsDeleted(newSize, size - 1);
+		}
+
+		/**
+		 * @return the model row of the song with the playlist ID, or <code>-1</code> if it isn't in the model
+		 */
+		protected int getRowOf(int id) {
+			Integer r = rows == null ? null : rows.get(id);
+			return r == null ? -1 : r;
 		}
 
 		@Override
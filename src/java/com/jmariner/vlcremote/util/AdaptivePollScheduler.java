@@ -0,0 +1,217 @@
+package com.jmariner.vlcremote.util;
+
+import com.jmariner.vlcremote.util.VLCStatus.State;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs a polling task repeatedly on its own thread, asking for the delay before every run
+ * instead of using a fixed rate. See {@link #computeDelay} for the delay used by the status updates.<br>
+ * The task is supervised: a failed run is retried with exponential backoff instead of ending the loop,
+ * and a watchdog replaces the polling thread if no run finishes by the time one was expected.
+ */
+@Slf4j
+public class AdaptivePollScheduler {
+
+	private String threadName;
+	private ScheduledExecutorService executor, watchdog;
+	private Runnable task;
+	private LongSupplier nextDelay;
+
+	private volatile ScheduledFuture<?> next;
+	private volatile boolean running;
+
+	/** incremented on every restart, so a run left on the old thread doesn't schedule another one */
+	private volatile int generation;
+	/** time by which the next run should have started, in ms */
+	private volatile long deadline;
+
+	private final AtomicLong ticks, failures, restarts;
+	@Getter
+	private volatile int consecutiveFailures;
+	@Getter
+	private volatile long lastSuccessTime, lastTickDuration;
+
+	/** delay used near track changes and after user commands */
+	public static final long FAST_DELAY = 250;
+	/** how long after a command to keep polling fast, in ms */
+	public static final long COMMAND_WINDOW = 3000;
+	/** how close to the start or end of a track counts as a track change, in seconds */
+	public static final int BOUNDARY_SECONDS = 2;
+	/** progress is interpolated locally by {@link PlaybackClock}, so playback itself needs few polls */
+	public static final int PLAYING_FACTOR = 3;
+	public static final int IDLE_FACTOR = 4;
+	public static final int HIDDEN_FACTOR = 4;
+	public static final long MAX_DELAY = 10000;
+
+	/** delay after the first failure, and the longest delay between retries, in ms */
+	public static final long MIN_BACKOFF = 1000, MAX_BACKOFF = 30000;
+	/** how often the watchdog checks on the polling thread, in ms */
+	public static final long WATCHDOG_PERIOD = 5000;
+	/** how long a run may be overdue before the polling thread is replaced, in ms */
+	public static final long STALL_GRACE = 15000;
+
+	/**
+	 * @param threadName name of the polling thread
+	 * @param task the task to run on every poll
+	 * @param nextDelay gives the delay in ms until the next poll, called after every successful run
+	 */
+	public AdaptivePollScheduler(String threadName, Runnable task, LongSupplier nextDelay) {
+		this.threadName = threadName;
+		this.task = task;
+		this.nextDelay = nextDelay;
+		this.ticks = new AtomicLong();
+		this.failures = new AtomicLong();
+		this.restarts = new AtomicLong();
+		this.executor = newExecutor();
+		this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, threadName + " Watchdog"));
+	}
+
+	public synchronized void start() {
+		running = true;
+		lastSuccessTime = System.currentTimeMillis();
+		schedule(0);
+		watchdog.scheduleWithFixedDelay(this::checkHealth, WATCHDOG_PERIOD, WATCHDOG_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		running = false;
+		if (next != null)
+			next.cancel(true);
+		executor.shutdownNow();
+		watchdog.shutdownNow();
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/** @return the number of finished runs, including failed ones */
+	public long getTicks() {
+		return ticks.get();
+	}
+
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/** @return how many times the watchdog had to replace the polling thread */
+	public long getRestarts() {
+		return restarts.get();
+	}
+
+	/** @return time in ms since the last run that finished without failing */
+	public long getTimeSinceSuccess() {
+		return System.currentTimeMillis() - lastSuccessTime;
+	}
+
+	private ScheduledExecutorService newExecutor() {
+		return Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, threadName));
+	}
+
+	private synchronized void schedule(long delay) {
+		int gen = generation;
+		deadline = System.currentTimeMillis() + delay;
+		next = executor.schedule(() -> run(gen), delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void run(int gen) {
+		long start = System.currentTimeMillis();
+		long delay;
+		try {
+			task.run();
+			lastTickDuration = System.currentTimeMillis() - start;
+			lastSuccessTime = System.currentTimeMillis();
+			consecutiveFailures = 0;
+			delay = nextDelay.getAsLong();
+		}
+		catch (Exception e) {
+			failures.incrementAndGet();
+			delay = backoff(++consecutiveFailures);
+			log.warn("{} failed {} time(s) in a row, retrying in {} ms", threadName, consecutiveFailures, delay, e);
+		}
+		ticks.incrementAndGet();
+
+		synchronized (this) {
+			if (running && gen == generation)
+				schedule(delay);
+		}
+	}
+
+	/**
+	 * Replaces the polling thread if a run is long overdue,
+	 * either because it is stuck or because nothing was scheduled after the last one.
+	 */
+	private synchronized void checkHealth() {
+		if (!running || System.currentTimeMillis() < deadline + STALL_GRACE) return;
+
+		restarts.incrementAndGet();
+		log.warn("{} stopped responding, restarting it. ticks: {}, failures: {}, restarts: {}",
+				threadName, ticks.get(), failures.get(), restarts.get());
+
+		generation++;
+		if (next != null)
+			next.cancel(true);
+		executor.shutdownNow();
+		executor = newExecutor();
+		schedule(0);
+	}
+
+	/**
+	 * @param failures how many runs in a row have failed, at least 1
+	 * @return the delay in ms before the next try, doubling with every failure
+	 */
+	public static long backoff(int failures) {
+		int doublings = Math.min(Math.max(failures - 1, 0), 30);
+		return Math.min(MIN_BACKOFF << doublings, MAX_BACKOFF);
+	}
+
+	/**
+	 * Picks the delay until the next status update based on what the player is doing.
+	 * <ul>
+	 *     <li>Fast right after a command, and near the start or end of a track</li>
+	 *     <li>A few times <code>baseDelay</code> while playing</li>
+	 *     <li>Slower while paused or stopped</li>
+	 *     <li>Slower again while the window is hidden, unless a fast update is needed</li>
+	 * </ul>
+	 * @param baseDelay the user's update delay in ms
+	 * @param status the latest status, or null if there is none yet
+	 * @param hidden whether the window is minimized or not showing
+	 * @param sinceCommand time in ms since the last command was sent
+	 * @return delay in ms until the next update
+	 */
+	public static long computeDelay(long baseDelay, VLCStatus status, boolean hidden, long sinceCommand) {
+		long fast = Math.min(baseDelay, FAST_DELAY);
+
+		if (sinceCommand < COMMAND_WINDOW)
+			return fast;
+
+		long delay;
+		if (status == null || status.getState() != State.PLAYING)
+			delay = baseDelay * IDLE_FACTOR;
+		else {
+			double rate = status.getRate() > 0 ? status.getRate() : 1;
+			double remaining = (status.getLength() - status.getTime()) / rate;
+
+			boolean nearStart = status.getTime() < BOUNDARY_SECONDS;
+			boolean nearEnd = status.getLength() > 0 && remaining * 1000 <= baseDelay * PLAYING_FACTOR + BOUNDARY_SECONDS * 1000;
+
+			if (nearStart || nearEnd)
+				return fast;
+
+			delay = baseDelay * PLAYING_FACTOR;
+		}
+
+		if (hidden)
+			delay *= HIDDEN_FACTOR;
+
+		return Math.min(delay, Math.max(baseDelay, MAX_DELAY));
+	}
+}
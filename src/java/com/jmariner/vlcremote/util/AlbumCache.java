@@ -0,0 +1,109 @@
+package com.jmariner.vlcremote.util;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Songs of recently loaded albums, by album name.<br>
+ * The size is limited by the total number of songs rather than the number of albums,
+ * since one large album can take as much memory as many small ones.
+ * When full, the least recently used albums are removed first.
+ */
+@Getter
+public class AlbumCache {
+
+	/** maximum total number of songs in the cache */
+	private final int capacity;
+	private int songCount;
+	private long hits, misses, evictions;
+
+	@Getter(AccessLevel.NONE)
+	private final LinkedHashMap<String, SongStore> albums;
+
+	public AlbumCache() {
+		this(UserSettings.getInt("albumCacheSongs", 20000));
+	}
+
+	public AlbumCache(int capacity) {
+		this.capacity = capacity;
+		this.albums = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * @return the cached songs of the album, or null if it isn't cached
+	 */
+	public synchronized SongStore get(String album) {
+		SongStore songs = albums.get(album);
+		if (songs != null) hits++;
+		else misses++;
+		return songs;
+	}
+
+	/**
+	 * Caches the songs of an album, replacing any older copy and removing
+	 * the least recently used albums until the songs fit.
+	 * An album with more songs than the whole cache can hold isn't cached.
+	 */
+	public synchronized void put(String album, SongStore songs) {
+		SongStore old = albums.remove(album);
+		if (old != null)
+			songCount -= old.size();
+
+		if (songs.size() > capacity) return;
+
+		Iterator<SongStore> eldest = albums.values().iterator();
+		while (songCount + songs.size() > capacity && eldest.hasNext()) {
+			songCount -= eldest.next().size();
+			eldest.remove();
+			evictions++;
+		}
+
+		albums.put(album, songs);
+		songCount += songs.size();
+	}
+
+	/**
+	 * @return a copy of the cached albums, from least to most recently used, without counting as accesses
+	 */
+	public synchronized LinkedHashMap<String, SongStore> entries() {
+		return new LinkedHashMap<>(albums);
+	}
+
+	/**
+	 * Removes the albums that aren't in <code>keep</code>, such as albums no longer in the library.
+	 */
+	public synchronized void retainAll(Collection<String> keep) {
+		Iterator<String> it = albums.keySet().iterator();
+		while (it.hasNext()) {
+			String album = it.next();
+			if (!keep.contains(album)) {
+				songCount -= albums.get(album).size();
+				it.remove();
+			}
+		}
+	}
+
+	public synchronized boolean contains(String album) {
+		return albums.containsKey(album);
+	}
+
+	/** @return the number of cached albums */
+	public synchronized int size() {
+		return albums.size();
+	}
+
+	public synchronized void clear() {
+		albums.clear();
+		songCount = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d albums, %d/%d songs, %d hits, %d misses, %d evictions",
+				albums.size(), songCount, capacity, hits, misses, evictions);
+	}
+}
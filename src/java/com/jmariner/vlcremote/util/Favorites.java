@@ -0,0 +1,102 @@
+package com.jmariner.vlcremote.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * The favorite songs, kept in memory so checking a song never touches the preferences.<br>
+ * Songs are identified by their display name without whitespace and dots, the same keys
+ * the <code>favorites</code> preferences node has always used. The node is read once, and changes
+ * are written back to it on a background thread in the order they were made.
+ */
+@Slf4j
+public class Favorites {
+
+	private static volatile Set<String> keys;
+
+	private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "Favorites Writer");
+		t.setDaemon(true);
+		return t;
+	});
+
+	public static boolean contains(String name) {
+		return getKeys().contains(toKey(name));
+	}
+
+	public static void add(String name) {
+		String key = toKey(name);
+		if (getKeys().add(key))
+			writer.execute(() -> getNode().putBoolean(key, true));
+	}
+
+	public static void remove(String name) {
+		String key = toKey(name);
+		if (getKeys().remove(key))
+			writer.execute(() -> getNode().remove(key));
+	}
+
+	/**
+	 * Blocks until the changes made so far are written to the preferences, or the timeout passes.
+	 */
+	public static void flush(long timeout) {
+		try {
+			Future<?> done = writer.submit(() -> {});
+			done.get(timeout, TimeUnit.MILLISECONDS);
+		}
+		catch (Exception e) {
+			log.warn("Favorites may not have been saved", e);
+		}
+	}
+
+	private static Set<String> getKeys() {
+		if (keys == null) {
+			synchronized (Favorites.class) {
+				if (keys == null)
+					keys = load();
+			}
+		}
+		return keys;
+	}
+
+	private static Set<String> load() {
+		Set<String> out = ConcurrentHashMap.newKeySet();
+		try {
+			Preferences node = getNode();
+			Arrays.stream(node.keys())
+					.filter(k -> node.getBoolean(k, false))
+					.forEach(out::add);
+		}
+		catch (BackingStoreException e) {
+			log.warn("Could not load favorites", e);
+		}
+		return out;
+	}
+
+	private static Preferences getNode() {
+		return UserSettings.getChild("favorites");
+	}
+
+	/**
+	 * Removes whitespace and dots, which can cause problems in keys; this is fine since keys are never converted back.
+	 */
+	static String toKey(String name) {
+		int cutoff = Preferences.MAX_KEY_LENGTH;
+		StringBuilder key = new StringBuilder(Math.min(name.length(), cutoff));
+		for (int i = 0; i < name.length() && key.length() < cutoff; i++) {
+			char c = name.charAt(i);
+			if (c != '.' && c != ' ' && (c < '\t' || c > '\r'))
+				key.append(c);
+		}
+		return key.toString();
+	}
+}
@@ -0,0 +1,185 @@
+package com.jmariner.vlcremote.util;
+
+import com.jmariner.vlcremote.SongItem;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Saves the media library folders and the cached album playlists of one VLC host to a binary file
+ * next to the preferences file, so they can be shown right away on the next connection
+ * while the real ones are downloaded.<br>
+ * A hash of the contents is stored with them, and a file that doesn't match its hash is ignored.
+ */
+@Slf4j
+public class LibraryCache {
+
+	private static final int MAGIC = 0x564C4352; // "VLCR"
+	private static final int VERSION = 1;
+
+	private String host;
+	@Getter
+	private File file;
+
+	/**
+	 * @param host host name of VLC's web interface
+	 * @param port port of VLC's web interface
+	 */
+	public LibraryCache(String host, int port) {
+		this.host = host + ":" + port;
+		File dir = UserSettings.getPrefsFile().getAbsoluteFile().getParentFile();
+		this.file = new File(dir, "vlcremote-" + this.host.replaceAll("[^\\w.-]", "_") + ".cache");
+	}
+
+	/**
+	 * Loads the library and cached albums from the file into <code>status</code>.
+	 * @return true if the file was valid and had the playlist VLC is playing
+	 * @see VLCStatus#loadCached
+	 */
+	public synchronized boolean load(VLCStatus status) {
+		if (!file.exists()) return false;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(host))
+				return false;
+
+			LinkedHashMap<String, String> folders = new LinkedHashMap<>();
+			for (int i = in.readInt(); i > 0; i--)
+				folders.put(in.readUTF(), in.readUTF());
+
+			LinkedHashMap<String, SongStore> albums = new LinkedHashMap<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				String name = in.readUTF();
+				int count = in.readInt();
+				SongStore songs = new SongStore(count);
+				for (int j = 0; j < count; j++)
+					songs.add(SongStore.newSong(in.readInt(), readString(in), readString(in), readString(in), in.readInt()));
+				albums.put(name, songs);
+			}
+
+			if (in.readLong() != hash(folders, albums)) {
+				log.warn("Ignoring {}, its contents don't match their hash", file);
+				return false;
+			}
+
+			return status.loadCached(folders, albums);
+		}
+		catch (IOException | RuntimeException e) {
+			log.warn("Could not read {}", file, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the library and cached albums of <code>status</code> to the file.
+	 * The file is written to a temporary file first, so an interrupted save doesn't leave a broken cache.
+	 */
+	public synchronized void save(VLCStatus status) {
+		LinkedHashMap<String, String> folders;
+		LinkedHashMap<String, SongStore> albums;
+		synchronized (status) {
+			folders = status.libraryExists() ? new LinkedHashMap<>(status.getLibraryFolders()) : new LinkedHashMap<>();
+			albums = status.getAlbumCache().entries();
+		}
+
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(host);
+
+			out.writeInt(folders.size());
+			for (Map.Entry<String, String> e : folders.entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeUTF(e.getValue());
+			}
+
+			out.writeInt(albums.size());
+			for (Map.Entry<String, SongStore> e : albums.entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeInt(e.getValue().size());
+				for (SongItem s : e.getValue().values()) {
+					out.writeInt(s.getId());
+					writeString(out, s.getTitle());
+					writeString(out, s.getArtist());
+					writeString(out, s.getAlbum());
+					out.writeInt(s.getDuration());
+				}
+			}
+
+			out.writeLong(hash(folders, albums));
+		}
+		catch (IOException e) {
+			log.warn("Could not write {}", temp, e);
+			return;
+		}
+
+		try {
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (IOException e) {
+			log.warn("Could not replace {}", file, e);
+		}
+	}
+
+	/**
+	 * @return a hash of the library folders and the current playlist of <code>status</code>,
+	 * to tell whether they changed after downloading them again
+	 */
+	public static long hash(VLCStatus status) {
+		synchronized (status) {
+			Map<String, String> folders = status.libraryExists() ? status.getLibraryFolders() : Collections.emptyMap();
+			return hash(folders, Collections.singletonMap("", status.getSongMap()));
+		}
+	}
+
+	private static long hash(Map<String, String> folders, Map<String, ? extends Map<Integer, SongItem>> albums) {
+		long h = 1125899906842597L;
+		for (Map.Entry<String, String> e : folders.entrySet())
+			h = 31 * h + e.getKey().hashCode() * 17 + e.getValue().hashCode();
+
+		for (Map.Entry<String, ? extends Map<Integer, SongItem>> e : albums.entrySet()) {
+			h = 31 * h + e.getKey().hashCode();
+			// songs are summed since their order in the store isn't fixed
+			long songs = 0;
+			for (SongItem s : e.getValue().values())
+				songs += (((s.getId() * 31L + hash(s.getTitle())) * 31 + hash(s.getArtist())) * 31
+						+ hash(s.getAlbum())) * 31 + s.getDuration();
+			h = 31 * h + songs;
+		}
+		return h;
+	}
+
+	private static int hash(String s) {
+		return s == null ? 0 : s.hashCode();
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null)
+			out.writeUTF(s);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -0,0 +1,153 @@
+package com.jmariner.vlcremote.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.jmariner.vlcremote.SongItem;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Fills a {@link SongIndex} with every album of the media library in the background.<br>
+ * VLC can only send the playlist it has loaded, so albums are indexed by listing their folders
+ * with VLC's <code>browse.json</code>, a few at a time. Those songs only have a title taken from the file name,
+ * and are replaced by the album's full playlist whenever VLC loads it.
+ */
+@Slf4j
+public class LibraryIndexer {
+
+	private final SongIndex index;
+	private final Function<String, String> fetch;
+	private final ExecutorService executor;
+
+	private static final String BROWSE_REQUEST = "requests/browse.json?uri=";
+	/** how deep into the folders of an album songs are looked for */
+	private static final int MAX_DEPTH = 3;
+
+	/** files that VLC skips when playing a folder */
+	private static final Set<String> IGNORED_EXTENSIONS = new HashSet<>(Arrays.asList(
+			"jpg", "jpeg", "png", "gif", "bmp", "txt", "nfo", "log", "cue", "m3u", "m3u8", "pls",
+			"db", "ini", "sfv", "md5", "pdf", "url", "lnk"
+	));
+
+	/**
+	 * @param fetch returns the body of a request relative to the web interface, or throws if it fails
+	 */
+	public LibraryIndexer(SongIndex index, Function<String, String> fetch) {
+		this(index, fetch, UserSettings.getInt("indexThreads", 2));
+	}
+
+	/**
+	 * @param threads maximum number of albums listed at once
+	 */
+	public LibraryIndexer(SongIndex index, Function<String, String> fetch, int threads) {
+		this.index = index;
+		this.fetch = fetch;
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "Library Indexer");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Lists every album in <code>folders</code> that the index doesn't have the full playlist of.
+	 * Each album is added to the index as soon as it is listed. An album that can't be listed is skipped.
+	 * @param folders album names and their folder uris, as in {@link VLCStatus#getLibraryFolders()}
+	 * @return completes once every album was tried
+	 */
+	public CompletableFuture<Void> index(Map<String, String> folders) {
+		List<CompletableFuture<Void>> albums = new ArrayList<>();
+		folders.forEach((album, uri) -> {
+			if (index.isComplete(album)) return;
+			try {
+				albums.add(CompletableFuture.runAsync(() -> indexAlbum(album, uri), executor));
+			}
+			catch (RejectedExecutionException ignored) {} // closed
+		});
+
+		return CompletableFuture.allOf(albums.toArray(new CompletableFuture<?>[0]));
+	}
+
+	private void indexAlbum(String album, String uri) {
+		try {
+			List<SongItem> songs = new ArrayList<>();
+			listFolder(album, uri, 0, songs);
+			index.put(album, songs, false);
+		}
+		catch (RuntimeException e) {
+			log.warn("Could not index album {}", album, e);
+		}
+	}
+
+	private void listFolder(String album, String uri, int depth, List<SongItem> out) {
+		List<JsonObject> files = new ArrayList<>();
+		List<String> folders = new ArrayList<>();
+
+		for (JsonElement e : parseBrowseJson(fetch.apply(BROWSE_REQUEST + encode(uri)))) {
+			JsonObject o = e.getAsJsonObject();
+			String name = o.get("name").getAsString();
+			if (o.get("type").getAsString().equals("dir")) {
+				if (!name.equals("..") && depth < MAX_DEPTH)
+					folders.add(o.get("uri").getAsString());
+			}
+			else if (!IGNORED_EXTENSIONS.contains(extension(name).toLowerCase()))
+				files.add(o);
+		}
+
+		// VLC plays a folder in name order
+		files.sort(Comparator.comparing(o -> o.get("name").getAsString()));
+		files.forEach(o -> out.add(SongStore.newSong(-1, title(o.get("name").getAsString()), "", album, 0)));
+
+		folders.sort(null);
+		folders.forEach(f -> listFolder(album, f, depth + 1, out));
+	}
+
+	/**
+	 * Stops indexing. The indexer can't be used after this.
+	 */
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private static Iterable<JsonElement> parseBrowseJson(String json) {
+		JsonElement root = new JsonParser().parse(json);
+		assert root.isJsonObject();
+
+		JsonElement elements = root.getAsJsonObject().get("element");
+		return elements == null || !elements.isJsonArray() ? new ArrayList<>() : elements.getAsJsonArray();
+	}
+
+	private static String extension(String name) {
+		int dot = name.lastIndexOf('.');
+		return dot == -1 ? "" : name.substring(dot + 1);
+	}
+
+	private static String title(String name) {
+		int dot = name.lastIndexOf('.');
+		return dot <= 0 ? name : name.substring(0, dot);
+	}
+
+	private static String encode(String uri) {
+		try {
+			return URLEncoder.encode(uri, "UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
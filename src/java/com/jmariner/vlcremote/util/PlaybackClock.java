@@ -0,0 +1,82 @@
+package com.jmariner.vlcremote.util;
+
+import com.jmariner.vlcremote.util.VLCStatus.State;
+
+/**
+ * Local estimate of the playback time, so progress can move smoothly between status updates.<br>
+ * It is seeded from every status and advanced with the system clock at the playback rate.
+ * Small differences between the estimate and a new status are blended in over
+ * {@link #SMOOTHING_TIME} instead of making the time jump back and forth.
+ */
+public class PlaybackClock {
+
+	/** differences bigger than this (in seconds) are seeks or track changes and are applied right away */
+	public static final double SNAP_THRESHOLD = 1.5;
+	/** how long a small correction takes to be blended in, in seconds */
+	public static final double SMOOTHING_TIME = 1.0;
+
+	private double anchorTime, correction, rate;
+	private long anchorNanos;
+	private int length;
+	private boolean running, seeded;
+
+	/**
+	 * Corrects the clock with a new status.
+	 * @param status the latest status, ignored if null
+	 */
+	public synchronized void sync(StatusSnapshot status) {
+		if (status == null) return;
+		long now = System.nanoTime();
+
+		// position has sub-second precision while time is rounded to whole seconds
+		double actual = status.getLength() > 0 ? status.getPosition() * status.getLength() : status.getTime();
+		double predicted = timeAt(now);
+		double error = actual - predicted;
+
+		boolean snap = !seeded || !running
+				|| status.getLength() != length
+				|| Math.abs(error) > SNAP_THRESHOLD;
+
+		// when not snapping, continue from the shown time and blend the error in from there
+		anchorTime = snap ? actual : predicted;
+		correction = snap ? 0 : error;
+		anchorNanos = now;
+
+		length = status.getLength();
+		rate = status.getRate() > 0 ? status.getRate() : 1;
+		running = status.getState() == State.PLAYING;
+		seeded = true;
+	}
+
+	/**
+	 * @return the estimated playback time in seconds, between 0 and the track length
+	 */
+	public synchronized double getTime() {
+		double time = timeAt(System.nanoTime());
+		return Math.max(0, length > 0 ? Math.min(time, length) : time);
+	}
+
+	/**
+	 * @return the estimated position in the track, from 0 to 1
+	 */
+	public synchronized double getPosition() {
+		return length > 0 ? getTime() / length : 0;
+	}
+
+	public synchronized boolean isRunning() {
+		return running;
+	}
+
+	private double timeAt(long nanos) {
+		if (!seeded) return 0;
+		return anchorTime + elapsed(nanos) * (running ? rate : 0) + correctionAt(nanos);
+	}
+
+	private double correctionAt(long nanos) {
+		return correction * Math.min(1, elapsed(nanos) / SMOOTHING_TIME);
+	}
+
+	private double elapsed(long nanos) {
+		return (nanos - anchorNanos) / 1e9;
+	}
+}
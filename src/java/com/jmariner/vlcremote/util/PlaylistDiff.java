@@ -0,0 +1,64 @@
+package com.jmariner.vlcremote.util;
+
+import com.jmariner.vlcremote.SongItem;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The songs added, removed and changed between two versions of a playlist, matched by playlist ID.<br>
+ * {@link VLCStatus#loadPlaylist} keeps the same <code>SongItem</code> for songs that didn't change,
+ * so unchanged songs are recognized by reference without comparing their details.
+ * Any other song with the same ID counts as changed, since the old item has to be replaced either way.
+ */
+@Getter
+public class PlaylistDiff {
+
+	private final List<SongItem> added, removed, changed;
+
+	private PlaylistDiff(List<SongItem> added, List<SongItem> removed, List<SongItem> changed) {
+		this.added = added;
+		this.removed = removed;
+		this.changed = changed;
+	}
+
+	/**
+	 * @param before the songs that were showing, may be null
+	 * @param after the songs to show now
+	 */
+	public static PlaylistDiff between(SongStore before, SongStore after) {
+		if (before == null)
+			return new PlaylistDiff(new ArrayList<>(after.values()), Collections.emptyList(), Collections.emptyList());
+		if (before == after)
+			return new PlaylistDiff(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+		List<SongItem> added = new ArrayList<>();
+		List<SongItem> removed = new ArrayList<>();
+		List<SongItem> changed = new ArrayList<>();
+
+		for (SongItem s : after.values()) {
+			SongItem old = before.get(s.getId());
+			if (old == null)
+				added.add(s);
+			else if (old != s)
+				changed.add(s);
+		}
+
+		for (SongItem s : before.values())
+			if (!after.contains(s.getId()))
+				removed.add(s);
+
+		return new PlaylistDiff(added, removed, changed);
+	}
+
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	/** @return the number of songs that were added, removed or changed */
+	public int size() {
+		return added.size() + removed.size() + changed.size();
+	}
+}
@@ -0,0 +1,159 @@
+package com.jmariner.vlcremote.util;
+
+import com.jmariner.vlcremote.SongItem;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Finds the songs whose display name contains a search text, ignoring case and accents.<br>
+ * The names are normalized once when a song is created, and every three character sequence (trigram)
+ * of every name is indexed. A search only checks the songs that contain the rarest trigram of the text,
+ * so it takes about as long as the number of likely matches instead of the size of the playlist.
+ * Texts shorter than a trigram are checked against every normalized name.
+ */
+public class SearchIndex {
+
+	private final int[] ids;
+	private final String[] keys;
+
+	/** open addressing table of trigram -> trigram number, empty slots have number -1 */
+	private long[] gramKeys;
+	private int[] gramSlots;
+	private int gramCount;
+
+	/** song positions containing trigram <code>n</code> are <code>positions[offsets[n] .. offsets[n+1]-1]</code> */
+	private int[] offsets, positions;
+
+	public SearchIndex(Collection<SongItem> songs) {
+		ids = new int[songs.size()];
+		keys = new String[songs.size()];
+
+		int i = 0;
+		for (SongItem s : songs) {
+			ids[i] = s.getId();
+			keys[i++] = s.getNameKey();
+		}
+
+		gramKeys = new long[1 << 12];
+		gramSlots = new int[1 << 12];
+		Arrays.fill(gramSlots, -1);
+
+		// first pass numbers the trigrams and counts the songs containing each,
+		// second pass fills in the positions of those songs
+		int[] counts = new int[1 << 11];
+		int[] last = new int[1 << 11];
+		for (i = 0; i < keys.length; i++) {
+			String k = keys[i];
+			for (int c = 0; c + 3 <= k.length(); c++) {
+				int n = gramNumber(trigram(k, c), true);
+				if (n == counts.length) {
+					counts = Arrays.copyOf(counts, n * 2);
+					last = Arrays.copyOf(last, n * 2);
+				}
+				// a trigram can appear more than once in a name
+				if (counts[n] == 0 || last[n] != i) {
+					counts[n]++;
+					last[n] = i;
+				}
+			}
+		}
+
+		offsets = new int[gramCount + 1];
+		for (int n = 0; n < gramCount; n++)
+			offsets[n + 1] = offsets[n] + counts[n];
+
+		positions = new int[offsets[gramCount]];
+		int[] next = Arrays.copyOf(offsets, gramCount);
+		for (i = 0; i < keys.length; i++) {
+			String k = keys[i];
+			for (int c = 0; c + 3 <= k.length(); c++) {
+				int n = gramNumber(trigram(k, c), false);
+				if (next[n] == offsets[n] || positions[next[n] - 1] != i)
+					positions[next[n]++] = i;
+			}
+		}
+	}
+
+	/**
+	 * @return the IDs of the songs whose display name contains <code>text</code>
+	 */
+	public BitSet search(String text) {
+		BitSet out = new BitSet();
+		String q = SongItem.normalize(text);
+
+		if (q.isEmpty()) {
+			for (int id : ids) out.set(id);
+			return out;
+		}
+
+		if (q.length() < 3) {
+			for (int i = 0; i < keys.length; i++)
+				if (keys[i].contains(q)) out.set(ids[i]);
+			return out;
+		}
+
+		int rarest = -1;
+		for (int c = 0; c + 3 <= q.length(); c++) {
+			int n = gramNumber(trigram(q, c), false);
+			if (n == -1) return out;
+			if (rarest == -1 || offsets[n + 1] - offsets[n] < offsets[rarest + 1] - offsets[rarest])
+				rarest = n;
+		}
+
+		for (int j = offsets[rarest]; j < offsets[rarest + 1]; j++) {
+			int i = positions[j];
+			if (keys[i].contains(q)) out.set(ids[i]);
+		}
+		return out;
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	private static long trigram(String s, int i) {
+		return (long) s.charAt(i) << 32 | (long) s.charAt(i + 1) << 16 | s.charAt(i + 2);
+	}
+
+	/**
+	 * @param add whether to number the trigram if it isn't in the table yet
+	 * @return the number of the trigram, or -1 if it isn't in the table
+	 */
+	private int gramNumber(long gram, boolean add) {
+		int mask = gramKeys.length - 1;
+		long h = gram * 0x9E3779B97F4A7C15L;
+		int slot = (int) (h ^ h >>> 32) & mask;
+
+		for (; gramSlots[slot] != -1; slot = (slot + 1) & mask)
+			if (gramKeys[slot] == gram) return gramSlots[slot];
+
+		if (!add) return -1;
+
+		gramKeys[slot] = gram;
+		gramSlots[slot] = gramCount;
+		if (gramCount * 2 >= gramKeys.length)
+			growGrams();
+		return gramCount++;
+	}
+
+	private void growGrams() {
+		long[] oldKeys = gramKeys;
+		int[] oldSlots = gramSlots;
+		gramKeys = new long[oldKeys.length * 2];
+		gramSlots = new int[oldKeys.length * 2];
+		Arrays.fill(gramSlots, -1);
+
+		int mask = gramKeys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldSlots[i] == -1) continue;
+			long h = oldKeys[i] * 0x9E3779B97F4A7C15L;
+			int slot = (int) (h ^ h >>> 32) & mask;
+			while (gramSlots[slot] != -1)
+				slot = (slot + 1) & mask;
+			gramKeys[slot] = oldKeys[i];
+			gramSlots[slot] = oldSlots[i];
+		}
+	}
+}
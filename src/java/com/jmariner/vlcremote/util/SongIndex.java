@@ -0,0 +1,117 @@
+package com.jmariner.vlcremote.util;
+
+import com.jmariner.vlcremote.SongItem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Songs of every album in the library, by album name.<br>
+ * Albums are added one at a time as they are indexed, so the index can be shown before it is complete.
+ * Songs from an album's playlist have all their details, while songs found by listing the album's folder
+ * only have a title, so a listed album never replaces one that came from its playlist.
+ */
+public class SongIndex {
+
+	private final LinkedHashMap<String, List<SongItem>> albums;
+	private final Set<String> complete;
+	private int songCount;
+
+	private final List<Consumer<String>> listeners;
+
+	public SongIndex() {
+		albums = new LinkedHashMap<>();
+		complete = new HashSet<>();
+		listeners = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * Adds or replaces the songs of an album.
+	 * @param complete true if the songs came from the album's playlist
+	 * @return false if the album already had songs from its playlist and <code>songs</code> didn't
+	 */
+	public boolean put(String album, Collection<SongItem> songs, boolean complete) {
+		synchronized (this) {
+			if (!complete && this.complete.contains(album))
+				return false;
+
+			List<SongItem> old = albums.put(album, new ArrayList<>(songs));
+			songCount += songs.size() - (old == null ? 0 : old.size());
+			if (complete)
+				this.complete.add(album);
+		}
+		listeners.forEach(l -> l.accept(album));
+		return true;
+	}
+
+	/**
+	 * Removes the albums that aren't in <code>keep</code>, such as albums no longer in the library.
+	 * Listeners are called for each removed album, which then has no songs.
+	 */
+	public void retainAll(Collection<String> keep) {
+		List<String> removed = new ArrayList<>();
+		synchronized (this) {
+			Iterator<Map.Entry<String, List<SongItem>>> it = albums.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<String, List<SongItem>> e = it.next();
+				if (!keep.contains(e.getKey())) {
+					songCount -= e.getValue().size();
+					complete.remove(e.getKey());
+					removed.add(e.getKey());
+					it.remove();
+				}
+			}
+		}
+		removed.forEach(album -> listeners.forEach(l -> l.accept(album)));
+	}
+
+	/**
+	 * @return true if the album has songs from its playlist, with all their details
+	 */
+	public synchronized boolean isComplete(String album) {
+		return complete.contains(album);
+	}
+
+	/**
+	 * @return the names of the indexed albums, in the order they were first added
+	 */
+	public synchronized List<String> getAlbums() {
+		return new ArrayList<>(albums.keySet());
+	}
+
+	/**
+	 * @return a copy of the songs of an album, or an empty list if it isn't indexed
+	 */
+	public synchronized List<SongItem> getSongs(String album) {
+		List<SongItem> songs = albums.get(album);
+		return songs == null ? new ArrayList<>() : new ArrayList<>(songs);
+	}
+
+	public synchronized int getSongCount() {
+		return songCount;
+	}
+
+	public synchronized int getAlbumCount() {
+		return albums.size();
+	}
+
+	/**
+	 * @param listener called with the album name after an album is added, replaced or removed,
+	 * on the thread that added it
+	 */
+	public void addListener(Consumer<String> listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Consumer<String> listener) {
+		listeners.remove(listener);
+	}
+}
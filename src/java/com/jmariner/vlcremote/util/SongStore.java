@@ -0,0 +1,200 @@
+package com.jmariner.vlcremote.util;
+
+import com.jmariner.vlcremote.SongItem;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Songs of a playlist by playlist ID, stored in an open addressing table of plain <code>int</code> keys,
+ * so large playlists don't need a boxed key and an entry object for every song.<br>
+ * Lookups by ID should use {@link #get(int)}. The <code>Map</code> methods are there so a store
+ * can be used anywhere a playlist map is expected. Songs can be added but not removed,
+ * since a new store is built whenever the playlist changes.
+ */
+public class SongStore extends AbstractMap<Integer, SongItem> {
+
+	private int[] ids;
+	private SongItem[] songs;
+	private int size, mask;
+
+	private volatile SearchIndex searchIndex;
+
+	private static final float LOAD_FACTOR = 0.6f;
+
+	public SongStore() {
+		this(16);
+	}
+
+	/**
+	 * @param expectedSize number of songs to make room for without resizing
+	 */
+	public SongStore(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+		ids = new int[capacity];
+		songs = new SongItem[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Creates a song with its artist and album interned, since those repeat across many songs.
+	 */
+	public static SongItem newSong(int id, String title, String artist, String album, int duration) {
+		return new SongItem(id, title, intern(artist), intern(album), duration);
+	}
+
+	private static String intern(String s) {
+		return s == null ? null : s.intern();
+	}
+
+	/**
+	 * Builds the search index of the songs the first time it is needed, and keeps it with the store.
+	 * Only call this once the store is filled, and preferably off the EDT, since a large playlist takes a while.
+	 */
+	public SearchIndex getSearchIndex() {
+		SearchIndex index = searchIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = searchIndex;
+				if (index == null)
+					searchIndex = index = new SearchIndex(values());
+			}
+		}
+		return index;
+	}
+
+	public SongItem get(int id) {
+		for (int i = slot(id); songs[i] != null; i = (i + 1) & mask)
+			if (ids[i] == id) return songs[i];
+		return null;
+	}
+
+	public boolean contains(int id) {
+		return get(id) != null;
+	}
+
+	/**
+	 * Adds a song by its ID, replacing any song with the same ID.
+	 * @return the replaced song, or null
+	 */
+	public SongItem add(SongItem song) {
+		int id = song.getId();
+		int i = slot(id);
+		for (; songs[i] != null; i = (i + 1) & mask) {
+			if (ids[i] == id) {
+				SongItem old = songs[i];
+				songs[i] = song;
+				return old;
+			}
+		}
+
+		ids[i] = id;
+		songs[i] = song;
+		if (++size > songs.length * LOAD_FACTOR)
+			resize();
+		return null;
+	}
+
+	private int slot(int id) {
+		// spreads sequential IDs, which is what VLC hands out
+		int h = id * 0x9E3779B9;
+		return (h ^ h >>> 16) & mask;
+	}
+
+	private void resize() {
+		SongItem[] old = songs;
+		ids = new int[old.length * 2];
+		songs = new SongItem[old.length * 2];
+		mask = songs.length - 1;
+		size = 0;
+		for (SongItem s : old)
+			if (s != null) add(s);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public SongItem get(Object key) {
+		return key instanceof Integer ? get((int) (Integer) key) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public SongItem put(Integer id, SongItem song) {
+		if (id != song.getId())
+			throw new IllegalArgumentException("Key " + id + " doesn't match song ID " + song.getId());
+		return add(song);
+	}
+
+	@Override
+	public Collection<SongItem> values() {
+		return new AbstractCollection<SongItem>() {
+			@Override
+			public Iterator<SongItem> iterator() {
+				return new SlotIterator<>(i -> songs[i]);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public Set<Map.Entry<Integer, SongItem>> entrySet() {
+		return new AbstractSet<Map.Entry<Integer, SongItem>>() {
+			@Override
+			public Iterator<Map.Entry<Integer, SongItem>> iterator() {
+				return new SlotIterator<>(i -> new SimpleImmutableEntry<>(ids[i], songs[i]));
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	private class SlotIterator<T> implements Iterator<T> {
+		private IntFunction<T> read;
+		private int next;
+
+		private SlotIterator(IntFunction<T> read) {
+			this.read = read;
+			this.next = advance(0);
+		}
+
+		private int advance(int i) {
+			while (i < songs.length && songs[i] == null) i++;
+			return i;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < songs.length;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			T out = read.apply(next);
+			next = advance(next + 1);
+			return out;
+		}
+	}
+}
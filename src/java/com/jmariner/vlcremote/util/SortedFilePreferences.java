@@ -4,7 +4,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.AbstractPreferences;
@@ -15,7 +23,12 @@ import java.util.prefs.BackingStoreException;
  * See <a href="http://www.davidc.net/programming/java/java-preferences-using-file-backing-store">http://www.davidc.net/programming/java/java-preferences-using-file-backing-store</a>
  * for details.<br>
  * Only changes including replacing instances of Properties with custom SortedProperties,
- * allowing keys to be written to file in a sorted order.
+ * allowing keys to be written to file in a sorted order.<br>
+ * Changes are written behind: a put or remove only marks the node dirty, and a background thread
+ * writes every dirty node in a single pass shortly after, so a burst of changes costs one file write.
+ * The file is replaced through a temporary file, so an interrupted write can't leave it half written.
+ * {@link #flush()} still writes right away, {@link #flushPending()} writes everything that is waiting,
+ * and {@link #shutdown(long)} does so once the flusher has stopped.
  */
 public class SortedFilePreferences extends AbstractPreferences {
 
@@ -25,6 +38,24 @@ public class SortedFilePreferences extends AbstractPreferences {
 	private Map<String, SortedFilePreferences> children;
 	private boolean isRemoved = false;
 
+	/** increased by every change, guarded by <code>lock</code> */
+	private long version;
+	/** version last written to the file, guarded by the file */
+	private long writtenVersion = -1;
+
+	/** nodes with changes that aren't written yet, also guards <code>pendingFlush</code> */
+	private static final Set<SortedFilePreferences> dirty = new LinkedHashSet<>();
+	private static ScheduledFuture<?> pendingFlush;
+
+	/** how long changes are collected before they are written, in ms */
+	private static final long FLUSH_DELAY = 500;
+
+	private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "Preferences Flusher");
+		t.setDaemon(true);
+		return t;
+	});
+
 	public SortedFilePreferences(AbstractPreferences parent, String name)
 	{
 		super(parent, name);
@@ -45,12 +76,8 @@ public class SortedFilePreferences extends AbstractPreferences {
 	protected void putSpi(String key, String value)
 	{
 		root.put(key, value);
-		try {
-			flush();
-		}
-		catch (BackingStoreException e) {
-			log.log(Level.SEVERE, "Unable to flush after putting " + key, e);
-		}
+		version++;
+		markDirty();
 	}
 
 	protected String getSpi(String key)
@@ -61,17 +88,95 @@ public class SortedFilePreferences extends AbstractPreferences {
 	protected void removeSpi(String key)
 	{
 		root.remove(key);
+		version++;
+		markDirty();
+	}
+
+	/**
+	 * Queues this node to be written with the next background flush, starting one if none is waiting.
+	 */
+	private void markDirty()
+	{
+		synchronized (dirty) {
+			dirty.add(this);
+			if (pendingFlush != null) return;
+			try {
+				pendingFlush = flusher.schedule(SortedFilePreferences::flushPending, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+				return;
+			}
+			catch (RejectedExecutionException ignored) {} // shut down, written right away below
+		}
+
 		try {
 			flush();
 		}
 		catch (BackingStoreException e) {
-			log.log(Level.SEVERE, "Unable to flush after removing " + key, e);
+			log.log(Level.SEVERE, "Unable to flush after shutdown", e);
+		}
+	}
+
+	/**
+	 * Stops the background flusher, waiting for a write in progress, then writes every change still waiting.
+	 * Changes made after this are written right away.
+	 */
+	public static void shutdown(long timeout)
+	{
+		synchronized (dirty) {
+			if (pendingFlush != null)
+				pendingFlush.cancel(false);
+			pendingFlush = null;
+		}
+		flusher.shutdown();
+		try {
+			if (!flusher.awaitTermination(timeout, TimeUnit.MILLISECONDS))
+				log.warning("Preferences flusher didn't stop in time");
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flushPending();
+	}
+
+	/**
+	 * Blocking call that writes the changes of every dirty node to the file in a single pass.
+	 * Called by the background flusher, and before exiting so no change is lost.
+	 */
+	public static void flushPending()
+	{
+		List<SortedFilePreferences> nodes;
+		synchronized (dirty) {
+			nodes = new ArrayList<>(dirty);
+			dirty.clear();
+			if (pendingFlush != null)
+				pendingFlush.cancel(false);
+			pendingFlush = null;
+		}
+		if (nodes.isEmpty()) return;
+
+		// each node is copied under its own lock, so no node is locked while the file is
+		List<Snapshot> snapshots = new ArrayList<>(nodes.size());
+		for (SortedFilePreferences node : nodes) {
+			synchronized (node.lock) {
+				snapshots.add(new Snapshot(node));
+			}
+		}
+
+		try {
+			write(snapshots);
+		}
+		catch (BackingStoreException e) {
+			log.log(Level.SEVERE, "Unable to write preferences", e);
+			// tried again with the next change or flush
+			synchronized (dirty) {
+				dirty.addAll(nodes);
+			}
 		}
 	}
 
 	protected void removeNodeSpi() throws BackingStoreException
 	{
 		isRemoved = true;
+		version++;
 		flush();
 	}
 
@@ -106,12 +211,10 @@ public class SortedFilePreferences extends AbstractPreferences {
 
 		synchronized (file) {
 			SortedProperties p = new SortedProperties();
-			try {
-				p.load(new FileInputStream(file));
+			try (FileInputStream in = new FileInputStream(file)) {
+				p.load(in);
 
-				StringBuilder sb = new StringBuilder();
-				getPath(sb);
-				String path = sb.toString();
+				String path = getPath();
 
 				final Enumeration<?> pnen = p.propertyNames();
 				while (pnen.hasMoreElements()) {
@@ -131,6 +234,13 @@ public class SortedFilePreferences extends AbstractPreferences {
 		}
 	}
 
+	private String getPath()
+	{
+		StringBuilder sb = new StringBuilder();
+		getPath(sb);
+		return sb.toString();
+	}
+
 	private void getPath(StringBuilder sb)
 	{
 		final SortedFilePreferences parent = (SortedFilePreferences) parent();
@@ -141,20 +251,69 @@ public class SortedFilePreferences extends AbstractPreferences {
 	}
 
 	protected void flushSpi() throws BackingStoreException
+	{
+		// called holding this node's lock, so nothing changes until the snapshot is taken
+		synchronized (dirty) {
+			dirty.remove(this);
+		}
+		try {
+			write(Collections.singletonList(new Snapshot(this)));
+		}
+		catch (BackingStoreException e) {
+			synchronized (dirty) {
+				dirty.add(this);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * The values of a node at one version, taken while holding the node's lock.
+	 */
+	private static class Snapshot
+	{
+		final SortedFilePreferences node;
+		final String path;
+		/** null for a removed node */
+		final Map<String, String> values;
+		final long version;
+
+		Snapshot(SortedFilePreferences node)
+		{
+			this.node = node;
+			this.path = node.getPath();
+			this.values = node.isRemoved ? null : new TreeMap<>(node.root);
+			this.version = node.version;
+		}
+	}
+
+	/**
+	 * Replaces the immediate values of each node in the file.
+	 * A snapshot older than the one last written for its node is skipped,
+	 * so a slow write can never replace a newer one.
+	 */
+	private static void write(List<Snapshot> snapshots) throws BackingStoreException
 	{
 		final File file = SortedFilePreferencesFactory.getPreferencesFile();
 
 		synchronized (file) {
+			List<Snapshot> newer = new ArrayList<>(snapshots.size());
+			for (Snapshot s : snapshots)
+				if (s.version >= s.node.writtenVersion)
+					newer.add(s);
+			if (newer.isEmpty()) return;
+
 			SortedProperties p = new SortedProperties();
 			try {
 
-				StringBuilder sb = new StringBuilder();
-				getPath(sb);
-				String path = sb.toString();
-
 				if (file.exists()) {
-					p.load(new FileInputStream(file));
+					try (FileInputStream in = new FileInputStream(file)) {
+						p.load(in);
+					}
+				}
 
+				for (Snapshot node : newer) {
+					String path = node.path;
 					List<String> toRemove = new ArrayList<String>();
 
 					// Make a list of all direct children of this node to be removed
@@ -174,16 +333,29 @@ public class SortedFilePreferences extends AbstractPreferences {
 					for (String propKey : toRemove) {
 						p.remove(propKey);
 					}
-				}
 
-				// If this node hasn't been removed, add back in any values
-				if (!isRemoved) {
-					for (String s : root.keySet()) {
-						p.setProperty(path + s, root.get(s));
+					// If this node hasn't been removed, add back in any values
+					if (node.values != null) {
+						for (Map.Entry<String, String> e : node.values.entrySet()) {
+							p.setProperty(path + e.getKey(), e.getValue());
+						}
 					}
 				}
 
-				p.store(new FileOutputStream(file), "FilePreferences");
+				// written next to the file first, so it is never left half written
+				File temp = new File(file.getPath() + ".tmp");
+				try (FileOutputStream out = new FileOutputStream(temp)) {
+					p.store(out, "FilePreferences");
+				}
+				try {
+					Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch (AtomicMoveNotSupportedException e) {
+					Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+
+				for (Snapshot node : newer)
+					node.node.writtenVersion = node.version;
 			}
 			catch (IOException e) {
 				throw new BackingStoreException(e);
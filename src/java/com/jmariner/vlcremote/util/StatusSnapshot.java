@@ -0,0 +1,83 @@
+package com.jmariner.vlcremote.util;
+
+import com.jmariner.vlcremote.SongItem;
+import com.jmariner.vlcremote.util.VLCStatus.State;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable copy of the parts of a {@link VLCStatus} shown in the interface.
+ * Unlike the status itself, it can be handed to the EDT while the next status is being loaded.<br>
+ * Create one with {@link VLCStatus#snapshot()}, and use {@link #changesFrom} to find what needs refreshing.
+ */
+@Getter
+public class StatusSnapshot {
+
+	public static final int STATE = 1;
+	/** shuffle, loop or repeat */
+	public static final int FLAGS = 1 << 1;
+	/** time, position or rate */
+	public static final int TIME = 1 << 2;
+	public static final int VOLUME = 1 << 3;
+	/** the current song, including its length */
+	public static final int CURRENT_ID = 1 << 4;
+	/** the selected preset or the list of presets */
+	public static final int EQ_PRESET = 1 << 5;
+	public static final int ALL = (1 << 6) - 1;
+
+	private final State state;
+	private final boolean shuffle, loop, repeat;
+	private final int time, length, volume, currentID;
+	private final double position, rate;
+	private final String eqPreset, currentAlbum;
+	private final List<String> eqPresets;
+	private final SongItem currentSong;
+
+	protected StatusSnapshot(VLCStatus status) {
+		state = status.getState();
+		shuffle = status.isShuffle();
+		loop = status.isLoop();
+		repeat = status.isRepeat();
+		time = status.getTime();
+		length = status.getLength();
+		volume = status.getVolume();
+		currentID = status.getCurrentID();
+		position = status.getPosition();
+		rate = status.getRate();
+		eqPreset = status.getEqPreset();
+		eqPresets = Collections.unmodifiableList(new ArrayList<>(status.getEqPresets()));
+		currentSong = status.getCurrentSong();
+		currentAlbum = status.getSongMap().isEmpty() ? null : status.getCurrentAlbum();
+	}
+
+	/**
+	 * @param previous the snapshot shown before this one, or null if there is none
+	 * @return a mask of the constants in this class for every part that changed since <code>previous</code>
+	 */
+	public int changesFrom(StatusSnapshot previous) {
+		if (previous == null) return ALL;
+
+		int mask = 0;
+		if (state != previous.state)
+			mask |= STATE;
+		if (shuffle != previous.shuffle || loop != previous.loop || repeat != previous.repeat)
+			mask |= FLAGS;
+		if (time != previous.time || position != previous.position || rate != previous.rate)
+			mask |= TIME;
+		if (volume != previous.volume)
+			mask |= VOLUME;
+		if (currentID != previous.currentID || length != previous.length || currentSong != previous.currentSong)
+			mask |= CURRENT_ID;
+		if (!Objects.equals(eqPreset, previous.eqPreset) || !eqPresets.equals(previous.eqPresets))
+			mask |= EQ_PRESET;
+		return mask;
+	}
+
+	public boolean isPlayingOrPaused() {
+		return state == State.PLAYING || state == State.PAUSED;
+	}
+}
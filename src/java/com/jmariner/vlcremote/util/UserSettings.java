@@ -2,7 +2,6 @@ package com.jmariner.vlcremote.util;
 
 import com.jmariner.vlcremote.Main;
 import lombok.extern.slf4j.Slf4j;
-import net.infotrek.util.prefs.FilePreferencesFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -47,7 +46,7 @@ public class UserSettings {
 	}
 
 	public static File getPrefsFile() {
-		return FilePreferencesFactory.getPreferencesFile();
+		return SortedFilePreferencesFactory.getPreferencesFile();
 	}
 
 	public static Preferences getRoot() {
@@ -55,28 +54,26 @@ public class UserSettings {
 		return prefs;
 	}
 
-	private static String toKey(String s) {
-		
-		// strip problematic characters; this is fine since we won't convert back
-		s = s.replaceAll("[\\s\\.]", "");
-		
-		int cutoff = Preferences.MAX_KEY_LENGTH;
-		if (s.length() > cutoff)
-			s = s.substring(0, cutoff);
-
-		return s;
-	}
-
+	/**
+	 * @see Favorites#add(String)
+	 */
 	public static void addFavorite(String s) {
-		getChild("favorites").putBoolean(toKey(s), true);
+		Favorites.add(s);
 	}
 
+	/**
+	 * @see Favorites#remove(String)
+	 */
 	public static void removeFavorite(String s) {
-		getChild("favorites").remove(toKey(s));
+		Favorites.remove(s);
 	}
 
+	/**
+	 * Checks the favorites in memory, without reading the preferences.
+	 * @see Favorites#contains(String)
+	 */
 	public static boolean isFavorite(String s) {
-		return getChild("favorites").getBoolean(toKey(s), false);
+		return Favorites.contains(s);
 	}
 	
 	/**
@@ -3,20 +3,24 @@ package com.jmariner.vlcremote.util;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import com.jmariner.vlcremote.SongItem;
 import lombok.AccessLevel;
 import lombok.Getter;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Getter
 public class VLCStatus {
 
-	@Getter(AccessLevel.NONE)
-	private Map<String, String> map;
-
 	private String version, album, title, filename, artist, genre, artworkUrl, eqPreset;
 	private boolean shuffle, loop, repeat;
 	private int time, volume, length, currentID;
@@ -24,9 +28,9 @@ public class VLCStatus {
 	private State state;
 
 	private List<String> eqPresets;
-	private Map<Integer, SongItem> songMap;
+	private SongStore songMap;
 	private LinkedHashMap<String, String> libraryFolders;
-	private LinkedHashMap<String, Map<Integer, SongItem>> albumCache;
+	private AlbumCache albumCache;
 
 	@Getter(AccessLevel.NONE)
 	private boolean playlistExists, libraryExists;
@@ -35,48 +39,58 @@ public class VLCStatus {
 
 	public VLCStatus() {
 		eqPresets = new ArrayList<>();
-		songMap = new HashMap<>();
+		songMap = new SongStore();
 		libraryFolders = new LinkedHashMap<>();
-		albumCache = new LinkedHashMap<>();
+		albumCache = new AlbumCache();
 	}
 
-	private String get(String key) {
-		return map.get(key);
-	}
-	private int getInt(String key) {
-		return Integer.parseInt(get(key));
-	}
-	private boolean getBoolean(String key) {
-		return Boolean.parseBoolean(get(key));
-	}
-	private double getDouble(String key) {
-		return Double.parseDouble(get(key));
-	}
-
-	public void loadStatus(String json) {
-		loadMap(parseStatusJson(json));
-		eqPresets = parseStatusForEqualizerOptions(json);
+	/**
+	 * Reads the status json in a single streaming pass, straight into the fields of this object.
+	 * Keys that aren't used are skipped without being parsed.
+	 */
+	public synchronized void loadStatus(String json) {
+		try (JsonReader in = new JsonReader(new StringReader(json))) {
+			parseStatusJson(in);
+		}
+		catch (IOException e) {
+			throw new JsonSyntaxException(e);
+		}
 	}
 
 	public void loadPlaylist(String json) {
-		List<Map<String, String>> playlist = parsePlaylistJson(json);
-
-		playlistExists = playlist.size() > 0;
-
-		songMap.clear();
-		if (playlistExists) {
-			playlist.forEach(s -> {
-				int id = Integer.parseInt(s.get("id"));
-				assert !songMap.containsKey(id);
+		try {
+			loadPlaylist(new StringReader(json));
+		}
+		catch (IOException e) {
+			throw new JsonSyntaxException(e);
+		}
+	}
 
-				songMap.put(id, new SongItem(
-						id, s.get("title"), s.get("artist"), s.get("album"), Integer.parseInt(s.get("duration"))
-				));
+	/**
+	 * Reads the playlist json in a single streaming pass, adding each song to a new store as soon as it is read.
+	 * No json tree or other copy of the playlist is built, so memory use doesn't grow with the size of the json.
+	 * @throws IOException if reading from <code>json</code> failed
+	 * @throws JsonSyntaxException if the json is malformed
+	 */
+	public void loadPlaylist(Reader json) throws IOException {
+		SongStore songs;
+		try (JsonReader in = new JsonReader(json)) {
+			// parsed without holding the lock, since the json may still be downloading
+			songs = parsePlaylistJson(in, getSongMap());
+		}
+		catch (MalformedJsonException | IllegalStateException e) {
+			throw new JsonSyntaxException(e);
+		}
+		setPlaylist(songs);
+	}
 
-			});
+	// song maps are replaced instead of cleared, so the cache and the interface can share them
+	private synchronized void setPlaylist(SongStore songs) {
+		songMap = songs;
+		playlistExists = songs.size() > 0;
 
-			albumCache.put(getCurrentAlbum(), new HashMap<>(songMap));
-		}
+		if (playlistExists)
+			albumCache.put(getCurrentAlbum(), songs);
 	}
 
 	public void loadMediaLibrary(String json) {
@@ -84,6 +98,35 @@ public class VLCStatus {
 		libraryExists = libraryFolders != null && libraryFolders.size() > 0;
 	}
 
+	/**
+	 * Fills in the library and albums saved by {@link LibraryCache} before they are downloaded again.
+	 * The cached playlist of the current album is only used if it has the song VLC is playing,
+	 * since playlist IDs change when VLC loads the album again.
+	 * @param albums cached albums, from least to most recently used
+	 * @return true if the playlist was loaded from the cache
+	 */
+	synchronized boolean loadCached(LinkedHashMap<String, String> folders, LinkedHashMap<String, SongStore> albums) {
+		libraryFolders = folders;
+		libraryExists = folders.size() > 0;
+		albums.forEach(albumCache::put);
+
+		SongStore songs = album == null ? null : albums.get(album);
+		SongItem current = songs == null ? null : songs.get(currentID);
+		if (current == null || (title != null && !title.equals(current.getTitle())))
+			return false;
+
+		songMap = songs;
+		playlistExists = true;
+		return true;
+	}
+
+	/**
+	 * Copies the current values, so they can be read on another thread while this status keeps updating.
+	 */
+	public synchronized StatusSnapshot snapshot() {
+		return new StatusSnapshot(this);
+	}
+
 	public SongItem getCurrentSong() {
 		return songMap.get(currentID);
 	}
@@ -96,133 +139,243 @@ public class VLCStatus {
 		return songMap.values().iterator().next().getAlbum();
 	}
 
-	public void loadAlbumFromCache(String albumName) {
-		songMap = albumCache.get(albumName);
+	/**
+	 * Shows the songs of an album loaded earlier, until VLC has loaded the album again.
+	 * The playlist IDs in the cache may be out of date until then.
+	 * @return true if the album was cached
+	 */
+	public synchronized boolean loadAlbumFromCache(String albumName) {
+		SongStore cached = albumCache.get(albumName);
+		if (cached != null)
+			songMap = cached;
+		return cached != null;
 	}
 
-	private void loadMap(Map<String, String> vlcStatus) {
-		this.map = vlcStatus;
+	private void parseStatusJson(JsonReader in) throws IOException {
 
-		this.version = get("version");
-		this.album = get("album");
-		this.title = get("title");
-		this.filename = get("filename");
-		this.artist = get("artist");
-		this.genre = get("genre");
-		this.artworkUrl = get("artwork_url");
-		this.eqPreset = get("eqPreset");
+		album = title = filename = artist = genre = artworkUrl = eqPreset = null;
 
-		this.shuffle = getBoolean("random");
-		this.loop = getBoolean("loop");
-		this.repeat = getBoolean("repeat");
-
-		this.time = getInt("time");
-		this.volume = getInt("volume");
-		this.length = getInt("length");
-		this.currentID = getInt("currentID");
-
-		this.position = getDouble("position");
-		this.rate = getDouble("rate");
+		if (in.peek() != JsonToken.BEGIN_OBJECT) {
+			in.skipValue();
+			return;
+		}
 
-		String state = get("state").toUpperCase();
-		this.state = State.keys().contains(state) ? State.valueOf(state) : State.UNKNOWN;
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "time":		time = nextInt(in); break;
+				case "volume":		volume = nextInt(in); break;
+				case "length":		length = nextInt(in); break;
+				case "currentplid":	currentID = nextInt(in); break;
+				case "position":	position = nextDouble(in); break;
+				case "rate":		rate = nextDouble(in); break;
+				case "random":		shuffle = nextBoolean(in); break;
+				case "loop":		loop = nextBoolean(in); break;
+				case "repeat":		repeat = nextBoolean(in); break;
+				case "version":		version = nextString(in); break;
+				case "state":		state = State.forName(nextString(in)); break;
+				case "equalizer":	parseEqualizer(in); break;
+				case "information":	parseInformation(in); break;
+				default:			in.skipValue();
+			}
+		}
+		in.endObject();
 	}
 
-	private static Map<String, String> parseStatusJson(String json)  {
-
-		Map<String, String> out = new HashMap<>();
-
-		JsonElement el = PARSER.parse(json);
-
-		if (el.isJsonObject()) {
-			JsonObject j = el.getAsJsonObject();
-			Stream.of(
-					"time", "volume", "length", "random", "rate", "state", "loop", "version", "position", "repeat", "currentplid"
-			).forEach(s -> {
-				String key = s.equals("currentplid") ? "currentID" : s;
-				String val = j.get(s) == null ? "" : j.get(s).getAsString();
-				out.put(key, val);
-			});
-
-			if (out.get("state").equals("stopped")) return out;
-
-			JsonElement eq = j.get("equalizer");
-			assert eq.isJsonObject();
-
-			JsonElement preset = eq.getAsJsonObject().get("preset");
-			out.put("eqPreset", preset == null ? null : preset.getAsString());
+	private void parseEqualizer(JsonReader in) throws IOException {
+		// VLC sends an empty array instead of an object while the equalizer is disabled
+		if (in.peek() != JsonToken.BEGIN_OBJECT) {
+			in.skipValue();
+			return;
+		}
 
-			JsonElement info = j.get("information");
-			assert info.isJsonObject();
+		in.beginObject();
+		while (in.hasNext()) {
+			String name = in.nextName();
+			if (name.equals("preset"))
+				eqPreset = nextString(in);
+			// the preset names never change, so only read them once
+			else if (name.equals("presets") && eqPresets.isEmpty() && in.peek() == JsonToken.BEGIN_OBJECT)
+				eqPresets = parseEqualizerPresets(in);
+			else
+				in.skipValue();
+		}
+		in.endObject();
+	}
 
-			JsonElement category = info.getAsJsonObject().get("category");
-			assert category.isJsonObject();
+	private static List<String> parseEqualizerPresets(JsonReader in) throws IOException {
+		List<String> out = new ArrayList<>();
 
-			JsonElement meta = category.getAsJsonObject().get("meta");
-			assert meta.isJsonObject();
+		in.beginObject();
+		while (in.hasNext()) {
+			// keys are in the form: preset id="<int>"
+			String key = in.nextName();
+			int id = Integer.parseInt(key.substring(key.indexOf('"') + 1, key.lastIndexOf('"')));
 
-			Stream.of("album", "title", "filename", "artist", "genre", "artwork_url").forEach(s -> {
-				JsonElement e =  meta.getAsJsonObject().get(s);
-				out.put(s, e == null ? null : e.getAsString());
-			});
+			while (out.size() <= id)
+				out.add(null);
+			out.set(id, nextString(in));
 		}
+		in.endObject();
+
 		return out;
 	}
 
-	private static List<String> parseStatusForEqualizerOptions(String json) {
-
-		List<String> out = new ArrayList<>();
-
-		JsonElement el = PARSER.parse(json);
+	private void parseInformation(JsonReader in) throws IOException {
+		if (in.peek() != JsonToken.BEGIN_OBJECT) {
+			in.skipValue();
+			return;
+		}
 
-		if (el.isJsonObject()) {
-			JsonElement eq = el.getAsJsonObject().get("equalizer");
-			assert eq.isJsonObject();
+		// information -> category -> meta
+		in.beginObject();
+		if (skipToObject(in, "category")) {
+			in.beginObject();
+			if (skipToObject(in, "meta")) {
+				in.beginObject();
+				while (in.hasNext()) {
+					switch (in.nextName()) {
+						case "album":		album = nextString(in); break;
+						case "title":		title = nextString(in); break;
+						case "filename":	filename = nextString(in); break;
+						case "artist":		artist = nextString(in); break;
+						case "genre":		genre = nextString(in); break;
+						case "artwork_url":	artworkUrl = nextString(in); break;
+						default:			in.skipValue();
+					}
+				}
+				in.endObject();
+			}
+			skipRemaining(in);
+			in.endObject();
+		}
+		skipRemaining(in);
+		in.endObject();
+	}
 
-			JsonElement presetsEl = eq.getAsJsonObject().get("presets");
-			assert presetsEl.isJsonObject();
+	/**
+	 * Skips the members of the current object until reaching <code>key</code> with an object value.
+	 * @return true if the reader is now positioned at the value of <code>key</code>,
+	 * false if the end of the current object was reached instead
+	 */
+	private static boolean skipToObject(JsonReader in, String key) throws IOException {
+		while (in.hasNext()) {
+			if (in.nextName().equals(key) && in.peek() == JsonToken.BEGIN_OBJECT)
+				return true;
+			in.skipValue();
+		}
+		return false;
+	}
 
-			JsonObject presets = presetsEl.getAsJsonObject();
-			for (int i=0, l=presets.size(); i<l; i++) {
-				out.add(presets.get(String.format("preset id=\"%d\"", i)).getAsString());
-			}
+	private static void skipRemaining(JsonReader in) throws IOException {
+		while (in.hasNext()) {
+			in.nextName();
+			in.skipValue();
 		}
-		return out;
+	}
 
+	private static String nextString(JsonReader in) throws IOException {
+		switch (in.peek()) {
+			case STRING:
+			case NUMBER:
+				return in.nextString();
+			case BOOLEAN:
+				return String.valueOf(in.nextBoolean());
+			case NULL:
+				in.nextNull();
+				return null;
+			default:
+				in.skipValue();
+				return null;
+		}
 	}
 
-	private static List<Map<String, String>> parsePlaylistJson(String json) {
-		List<Map<String, String>> out = new ArrayList<>();
+	private static int nextInt(JsonReader in) throws IOException {
+		return (int) nextDouble(in);
+	}
 
-		JsonElement root = PARSER.parse(json);
-		assert root.isJsonObject();
+	private static double nextDouble(JsonReader in) throws IOException {
+		switch (in.peek()) {
+			case STRING:
+			case NUMBER:
+				return in.nextDouble();
+			default:
+				in.skipValue();
+				return 0;
+		}
+	}
 
-		JsonElement playlist = root.getAsJsonObject().get("children");
-		assert playlist.isJsonArray();
+	private static boolean nextBoolean(JsonReader in) throws IOException {
+		switch (in.peek()) {
+			case BOOLEAN:
+				return in.nextBoolean();
+			case STRING:
+				return Boolean.parseBoolean(in.nextString());
+			default:
+				in.skipValue();
+				return false;
+		}
+	}
 
-		if (playlist.getAsJsonArray().size() == 1 &&
-				playlist.getAsJsonArray().get(0).getAsJsonObject().get("type").getAsString().equals("leaf")) {
+	/**
+	 * Songs that didn't change keep their item from <code>old</code>, so {@link PlaylistDiff} can skip them.
+	 */
+	private static SongStore parsePlaylistJson(JsonReader in, SongStore old) throws IOException {
+		SongStore songs = new SongStore();
 
-			return new ArrayList<>();
+		if (in.peek() != JsonToken.BEGIN_OBJECT) {
+			in.skipValue();
+			return songs;
 		}
 
-		playlist.getAsJsonArray().forEach(i -> {
-			Map<String, String> item = new HashMap<>();
-			JsonObject o = i.getAsJsonObject();
+		in.beginObject();
+		while (in.hasNext()) {
+			if (in.nextName().equals("children") && in.peek() == JsonToken.BEGIN_ARRAY)
+				songs = parsePlaylistItems(in, old);
+			else
+				in.skipValue();
+		}
+		in.endObject();
 
-			String id = o.get("id").getAsString();
-			item.put("id", id);
+		return songs;
+	}
 
-			Stream.of("duration", "title", "name", "artist", "album").forEach(
-					s -> item.put(s, o.get(s).getAsString())
-			);
+	private static SongStore parsePlaylistItems(JsonReader in, SongStore old) throws IOException {
+		SongStore songs = new SongStore();
+		int count = 0;
+		boolean firstIsLeaf = false;
+
+		in.beginArray();
+		while (in.hasNext()) {
+			int id = 0, duration = 0;
+			String title = null, artist = null, album = null, type = null;
+
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "id":			id = nextInt(in); break;
+					case "duration":	duration = nextInt(in); break;
+					case "title":		title = nextString(in); break;
+					case "artist":		artist = nextString(in); break;
+					case "album":		album = nextString(in); break;
+					case "type":		type = nextString(in); break;
+					default:			in.skipValue();
+				}
+			}
+			in.endObject();
 
-			item.put("current", o.get("current") == null ? "false" : "true");
+			if (count++ == 0)
+				firstIsLeaf = "leaf".equals(type);
 
-			out.add(item);
-		});
+			assert !songs.contains(id);
+			SongItem song = SongStore.newSong(id, title, artist, album, duration);
+			SongItem previous = old.get(id);
+			songs.add(song.sameDetails(previous) ? previous : song);
+		}
+		in.endArray();
 
-		return out;
+		// a playlist with nothing loaded is sent as a single leaf
+		return count == 1 && firstIsLeaf ? new SongStore() : songs;
 	}
 
 	private static LinkedHashMap<String, String> parseLibraryJson(String json) {
@@ -253,6 +406,15 @@ public class VLCStatus {
 		STOPPED,
 		UNKNOWN;
 
+		private static final Map<String, State> NAMES =
+				Arrays.stream(State.values())
+				.collect(Collectors.toMap(s -> s.name().toLowerCase(), Function.identity()));
+
+		public static State forName(String name) {
+			State s = name == null ? null : NAMES.get(name.toLowerCase());
+			return s == null ? UNKNOWN : s;
+		}
+
 		public static List<String> keys() {
 			return Arrays.asList(State.values())
 					.stream()
@@ -0,0 +1,173 @@
+package com.jmariner.vlcremote.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP transport for VLC's web interface.<br>
+ * Holds a small pool of keep-alive connections to the single VLC host, so the update loop
+ * reuses sockets instead of opening a new connection for every request. The Basic auth header
+ * is built once, and the latency of every request is recorded.
+ */
+@Slf4j
+public class VLCTransport implements Closeable {
+
+	private final String baseURL;
+	private final String authHeader;
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient client;
+
+	@Getter
+	private volatile long lastLatency;
+	private final AtomicLong requestCount, totalLatency;
+
+	private static final int MAX_CONNECTIONS = 4;
+	private static final int VALIDATE_AFTER_INACTIVITY = 2000;
+	private static final int MAX_IDLE_SECONDS = 30;
+
+	public VLCTransport(String baseURL, String password) {
+		this(baseURL, password,
+				UserSettings.getInt("connectTimeout", 2000),
+				UserSettings.getInt("readTimeout", 5000));
+	}
+
+	/**
+	 * @param baseURL url of the web interface, ending with a slash
+	 * @param password the http password configured in VLC
+	 * @param connectTimeout timeout in ms to establish a connection
+	 * @param readTimeout timeout in ms to wait for data once connected
+	 */
+	public VLCTransport(String baseURL, String password, int connectTimeout, int readTimeout) {
+		this.baseURL = baseURL;
+		this.authHeader = "Basic " + Base64.getEncoder().encodeToString(
+				(":" + password).getBytes(StandardCharsets.UTF_8));
+
+		this.requestCount = new AtomicLong();
+		this.totalLatency = new AtomicLong();
+		this.lastLatency = -1;
+
+		connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(MAX_CONNECTIONS);
+		connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+		connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+
+		RequestConfig config = RequestConfig.custom()
+				.setConnectTimeout(connectTimeout)
+				.setConnectionRequestTimeout(connectTimeout)
+				.setSocketTimeout(readTimeout)
+				.build();
+
+		client = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(config)
+				.setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+				.evictExpiredConnections()
+				.evictIdleConnections(MAX_IDLE_SECONDS, TimeUnit.SECONDS)
+				.build();
+	}
+
+	/**
+	 * Blocking GET request relative to the base url. The response body is always fully read
+	 * so the connection can be returned to the pool.
+	 * @param location path and query, relative to the base url
+	 * @return the status code, body and latency of the request
+	 * @throws IOException if the request could not be completed
+	 */
+	public Response get(String location) throws IOException {
+		return get(location, null);
+	}
+
+	/**
+	 * Like {@link #get(String)}, but hands the body to <code>reader</code> while it is being received
+	 * instead of reading it into a string, so a large response never has to be held in memory at once.
+	 * The body is only passed to the reader if the request succeeded, and is skipped otherwise.
+	 * @param reader reads the body, or null to return it in the response
+	 * @return the status code and latency of the request, with no body if <code>reader</code> was given
+	 * @throws IOException if the request could not be completed
+	 */
+	public Response get(String location, BodyReader reader) throws IOException {
+		HttpGet request = new HttpGet(baseURL + location);
+		request.setHeader(HttpHeaders.AUTHORIZATION, authHeader);
+
+		long start = System.nanoTime();
+		try (CloseableHttpResponse response = client.execute(request)) {
+			int status = response.getStatusLine().getStatusCode();
+			HttpEntity entity = response.getEntity();
+
+			String body = null;
+			if (entity != null && reader == null)
+				body = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+			else if (entity != null && status / 100 == 2) {
+				try (Reader in = new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8)) {
+					reader.read(in);
+				}
+			}
+			else
+				EntityUtils.consume(entity);
+
+			long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			lastLatency = latency;
+			requestCount.incrementAndGet();
+			totalLatency.addAndGet(latency);
+			log.debug("GET {} took {} ms", location, latency);
+
+			return new Response(status, body, latency);
+		}
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return average latency in ms of all completed requests, or <code>-1</code> if there were none
+	 */
+	public double getAverageLatency() {
+		long count = requestCount.get();
+		return count == 0 ? -1 : totalLatency.get() / (double) count;
+	}
+
+	@Override
+	public void close() {
+		try {
+			client.close();
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@FunctionalInterface
+	public interface BodyReader {
+		void read(Reader body) throws IOException;
+	}
+
+	@Getter
+	@AllArgsConstructor
+	public static class Response {
+		private int status;
+		private String body;
+		private long latency;
+	}
+}